@@ -5,54 +5,96 @@ import com.globalbooks.auth.model.AuthenticationResponse;
 import com.globalbooks.auth.model.User;
 import com.globalbooks.auth.repository.UserRepository;
 import com.globalbooks.auth.security.JwtUtil;
+import com.globalbooks.auth.security.LoginThrottle;
+import com.globalbooks.auth.security.PasswordWorkExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Password hashing and checking run on the {@link PasswordWorkExecutor} and the endpoints
+ * return futures, so the request thread is released while BCrypt works. When that pool is
+ * saturated requests are answered 503 at once, and locked-out usernames get 429.
+ */
 @RestController
 public class AuthController {
 
     private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordWorkExecutor passwordWork;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(AuthenticationManager authenticationManager, UserDetailsService userDetailsService, JwtUtil jwtUtil, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserRepository userRepository, PasswordEncoder passwordEncoder,
+                          PasswordWorkExecutor passwordWork, LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
-        this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.passwordWork = passwordWork;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody AuthenticationRequest authenticationRequest) {
-        User user = new User(authenticationRequest.getUsername(), passwordEncoder.encode(authenticationRequest.getPassword()));
-        userRepository.save(user);
-        return ResponseEntity.ok("User registered successfully");
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody AuthenticationRequest authenticationRequest) {
+        return onPasswordPool(() -> {
+            User user = new User(authenticationRequest.getUsername(), passwordEncoder.encode(authenticationRequest.getPassword()));
+            userRepository.save(user);
+            return ResponseEntity.ok("User registered successfully");
+        });
     }
 
     @PostMapping("/authenticate")
-    public ResponseEntity<?> createAuthenticationToken(@RequestBody AuthenticationRequest authenticationRequest) throws Exception {
-        try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(authenticationRequest.getUsername(), authenticationRequest.getPassword())
-            );
-        } catch (BadCredentialsException e) {
-            throw new Exception("Incorrect username or password", e);
+    public CompletableFuture<ResponseEntity<?>> createAuthenticationToken(@RequestBody AuthenticationRequest authenticationRequest) {
+        String username = authenticationRequest.getUsername();
+        long retryAfterMs = loginThrottle.retryAfterMs(username);
+        if (retryAfterMs > 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                    .body("Too many failed logins, try again later"));
         }
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(authenticationRequest.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
+        return onPasswordPool(() -> {
+            Authentication authentication;
+            try {
+                authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(username, authenticationRequest.getPassword())
+                );
+            } catch (BadCredentialsException e) {
+                loginThrottle.recordFailure(username);
+                throw new Exception("Incorrect username or password", e);
+            }
+            loginThrottle.recordSuccess(username);
 
-        return ResponseEntity.ok(new AuthenticationResponse(jwt));
+            // The provider has already loaded the user; no second lookup
+            final UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+            final String jwt = jwtUtil.generateToken(userDetails);
+
+            return ResponseEntity.ok(new AuthenticationResponse(jwt));
+        });
+    }
+
+    private CompletableFuture<ResponseEntity<?>> onPasswordPool(Callable<ResponseEntity<?>> work) {
+        try {
+            return passwordWork.submit(work);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Authentication is busy, try again shortly"));
+        }
     }
 }
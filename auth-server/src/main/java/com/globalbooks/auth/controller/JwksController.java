@@ -0,0 +1,32 @@
+package com.globalbooks.auth.controller;
+
+import com.globalbooks.auth.security.SigningKeys;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the token verification keys so services can check tokens without calling back.
+ * During a key rotation the set holds both the old and the new key.
+ */
+@RestController
+public class JwksController {
+
+    private final SigningKeys signingKeys;
+
+    public JwksController(SigningKeys signingKeys) {
+        this.signingKeys = signingKeys;
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(Collections.singletonMap("keys", signingKeys.jwks()));
+    }
+}
@@ -1,57 +1,121 @@
 package com.globalbooks.auth.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies tokens signed with the current key of {@link SigningKeys}, which also
+ * publishes the verification keys so other services check tokens locally instead of calling
+ * this server. The key id travels in each token's kid header.
+ */
 @Component
 public class JwtUtil {
 
-    private final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private static final String ROLES_CLAIM = "roles";
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+    private final SigningKeys signingKeys;
+    // Immutable and thread-safe, so one parser serves every request
+    private final JwtParser parser;
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
+    private final Cache<String, VerifiedToken> verified;
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(SECRET_KEY).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public JwtUtil(SigningKeys signingKeys,
+                   @Value("${jwt.cache.max-entries:10000}") long cacheMaxEntries) {
+        this.signingKeys = signingKeys;
+        // Accepts any published key, so tokens signed before a rotation stay valid until they expire
+        this.parser = Jwts.parserBuilder().setSigningKeyResolver(signingKeys).build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        // Carried in the token so requests can be authenticated without loading the user
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
+        return Jwts.builder().setHeaderParam("kid", signingKeys.signingKeyId())
+                .setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))
-                .signWith(SECRET_KEY).compact();
+                .signWith(signingKeys.signingKey(), signingKeys.signingAlgorithm()).compact();
+    }
+
+    /**
+     * Checks signature and expiry with a single parse and returns the user the token
+     * authenticates, built from its claims, or null if the token is not valid. Verified tokens
+     * are cached until they expire, so a repeated token costs one cache lookup.
+     */
+    public VerifiedToken verify(String token) {
+        VerifiedToken cached = verified.getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        // Every token issued here expires; one without an expiry is not ours to trust indefinitely
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        VerifiedToken result = new VerifiedToken(userFrom(claims), claims.getExpiration().getTime());
+        verified.put(token, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UserDetails userFrom(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        Collection<String> names = roles instanceof Collection ? (Collection<String>) roles : Collections.emptyList();
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(names.toArray(new String[0]))
+                .build();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken entry, long currentTime) {
+            long remainingMs = entry.getExpiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
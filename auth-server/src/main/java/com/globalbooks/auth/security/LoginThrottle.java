@@ -0,0 +1,84 @@
+package com.globalbooks.auth.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-username login throttle. After maxFailures consecutive failed logins a username is
+ * locked out for lockoutMs, doubling with each further failure up to maxLockoutMs; a
+ * successful login clears it. Checked before any password work is queued, so a locked
+ * username costs a map lookup rather than a BCrypt round.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxFailures;
+    private final long lockoutMs;
+    private final long maxLockoutMs;
+    private final int maxTracked;
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    public LoginThrottle(@Value("${auth.login-throttle.max-failures:5}") int maxFailures,
+                         @Value("${auth.login-throttle.lockout-ms:30000}") long lockoutMs,
+                         @Value("${auth.login-throttle.max-lockout-ms:900000}") long maxLockoutMs,
+                         @Value("${auth.login-throttle.max-tracked:100000}") int maxTracked) {
+        this.maxFailures = Math.max(1, maxFailures);
+        this.lockoutMs = lockoutMs;
+        this.maxLockoutMs = Math.max(lockoutMs, maxLockoutMs);
+        this.maxTracked = maxTracked;
+    }
+
+    // Milliseconds until username may try again; 0 if it may try now
+    public long retryAfterMs(String username) {
+        if (username == null) {
+            return 0;
+        }
+        Failures entry = failures.get(username);
+        return entry == null ? 0 : Math.max(0, entry.lockedUntil - System.currentTimeMillis());
+    }
+
+    public void recordFailure(String username) {
+        if (username == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (failures.size() >= maxTracked && !failures.containsKey(username)) {
+            evictExpired(now);
+        }
+        failures.compute(username, (key, entry) -> {
+            Failures next = entry == null ? new Failures() : entry;
+            next.count++;
+            next.lastFailure = now;
+            if (next.count >= maxFailures) {
+                int doublings = Math.min(next.count - maxFailures, 20);
+                next.lockedUntil = now + Math.min(maxLockoutMs, lockoutMs << doublings);
+            }
+            return next;
+        });
+    }
+
+    public void recordSuccess(String username) {
+        if (username != null) {
+            failures.remove(username);
+        }
+    }
+
+    private void evictExpired(long now) {
+        // Usernames that are not locked and have not failed for a full lockout period
+        failures.values().removeIf(entry -> entry.lockedUntil <= now && now - entry.lastFailure >= lockoutMs);
+        if (failures.size() >= maxTracked) {
+            // Everything tracked is live: keep the locked entries and drop the rest
+            failures.values().removeIf(entry -> entry.lockedUntil <= now);
+        }
+    }
+
+    // Only modified inside ConcurrentHashMap.compute for its key
+    private static final class Failures {
+        volatile int count;
+        volatile long lockedUntil;
+        volatile long lastFailure;
+    }
+}
@@ -0,0 +1,55 @@
+package com.globalbooks.auth.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs BCrypt hashing and matching off the request threads, on a fixed number of threads with
+ * a fixed-size queue. When the queue is full new work is refused immediately instead of
+ * waiting, so a login burst costs a bounded amount of CPU and latency and cannot tie up the
+ * threads that serve other endpoints.
+ */
+@Component
+public class PasswordWorkExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public PasswordWorkExecutor(@Value("${auth.hashing.threads:2}") int threads,
+                                @Value("${auth.hashing.queue-capacity:64}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the task and returns a future of its result.
+     *
+     * @throws RejectedExecutionException at once if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
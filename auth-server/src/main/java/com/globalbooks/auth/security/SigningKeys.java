@@ -0,0 +1,184 @@
+package com.globalbooks.auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The keys tokens are signed and verified with. With jwt.keystore.location set they come from
+ * a PKCS12 keystore: the entry named by jwt.keystore.signing-alias signs new tokens, and the
+ * public key of every entry is published and accepted, each under its alias as key id. To
+ * rotate, add the new key, point signing-alias at it, and remove the old entry once the tokens
+ * it signed have expired. Without a keystore a key pair is generated at startup, so tokens
+ * stop verifying when auth-server restarts.
+ */
+@Component
+public class SigningKeys extends SigningKeyResolverAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeys.class);
+
+    private final String signingKeyId;
+    private final PrivateKey signingKey;
+    private final SignatureAlgorithm signingAlgorithm;
+    // Key id -> public key, in keystore order
+    private final Map<String, PublicKey> publishedKeys;
+
+    public SigningKeys(@Value("${jwt.keystore.location:}") String location,
+                       @Value("${jwt.keystore.password:}") String password,
+                       @Value("${jwt.keystore.signing-alias:}") String signingAlias,
+                       @Value("${jwt.signing.algorithm:RS256}") String generatedAlgorithm) throws IOException, GeneralSecurityException {
+        if (location.isEmpty()) {
+            SignatureAlgorithm algorithm = SignatureAlgorithm.forName(generatedAlgorithm);
+            if (algorithm != SignatureAlgorithm.RS256 && algorithm != SignatureAlgorithm.ES256) {
+                throw new IllegalArgumentException("jwt.signing.algorithm must be RS256 or ES256, not " + generatedAlgorithm);
+            }
+            KeyPair keyPair = Keys.keyPairFor(algorithm);
+            this.signingKeyId = UUID.randomUUID().toString();
+            this.signingKey = keyPair.getPrivate();
+            this.signingAlgorithm = algorithm;
+            this.publishedKeys = Collections.singletonMap(signingKeyId, keyPair.getPublic());
+            logger.warn("No jwt.keystore.location set: signing with a generated {} key, tokens will not survive a restart",
+                    algorithm.getValue());
+            return;
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            keyStore.load(in, password.toCharArray());
+        }
+        Map<String, PublicKey> published = new LinkedHashMap<>();
+        String signingEntry = signingAlias.isEmpty() ? null : signingAlias;
+        for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements(); ) {
+            String alias = aliases.nextElement();
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null) {
+                continue;
+            }
+            algorithmFor(certificate.getPublicKey());
+            published.put(alias, certificate.getPublicKey());
+            if (signingAlias.isEmpty() && keyStore.isKeyEntry(alias)) {
+                if (signingEntry != null) {
+                    throw new IllegalStateException("Keystore " + location + " holds several private keys; set jwt.keystore.signing-alias");
+                }
+                signingEntry = alias;
+            }
+        }
+        Key key = signingEntry != null ? keyStore.getKey(signingEntry, password.toCharArray()) : null;
+        if (!(key instanceof PrivateKey) || !published.containsKey(signingEntry)) {
+            throw new IllegalStateException("Keystore " + location + " has no private key entry "
+                    + (signingEntry != null ? signingEntry : "to sign with"));
+        }
+        this.signingKeyId = signingEntry;
+        this.signingKey = (PrivateKey) key;
+        this.signingAlgorithm = algorithmFor(published.get(signingEntry));
+        this.publishedKeys = Collections.unmodifiableMap(published);
+        logger.info("Signing tokens with key {} ({}), publishing {} key(s)", signingKeyId,
+                signingAlgorithm.getValue(), publishedKeys.size());
+    }
+
+    public String signingKeyId() {
+        return signingKeyId;
+    }
+
+    public PrivateKey signingKey() {
+        return signingKey;
+    }
+
+    public SignatureAlgorithm signingAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    // Verification key named by the token's kid header
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        PublicKey key = header.getKeyId() != null ? publishedKeys.get(header.getKeyId()) : null;
+        if (key == null) {
+            throw new JwtException("Token is not signed by a published key");
+        }
+        return key;
+    }
+
+    // Every published verification key as a JWK (RFC 7517), without any private parts
+    public List<Map<String, Object>> jwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>(publishedKeys.size());
+        publishedKeys.forEach((keyId, key) -> jwks.add(jwk(keyId, key)));
+        return jwks;
+    }
+
+    private static Map<String, Object> jwk(String keyId, PublicKey publicKey) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey key = (RSAPublicKey) publicKey;
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(key.getModulus(), 0));
+            jwk.put("e", base64Url(key.getPublicExponent(), 0));
+        } else {
+            ECPublicKey key = (ECPublicKey) publicKey;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(key.getW().getAffineX(), 32));
+            jwk.put("y", base64Url(key.getW().getAffineY(), 32));
+        }
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithmFor(publicKey).getValue());
+        jwk.put("kid", keyId);
+        return jwk;
+    }
+
+    // RSA keys sign with RS256, P-256 keys with ES256; anything else is refused at startup
+    private static SignatureAlgorithm algorithmFor(PublicKey key) {
+        if (key instanceof RSAPublicKey) {
+            return SignatureAlgorithm.RS256;
+        }
+        if (key instanceof ECPublicKey && ((ECPublicKey) key).getParams().getCurve().getField().getFieldSize() == 256) {
+            return SignatureAlgorithm.ES256;
+        }
+        throw new IllegalStateException("Unsupported token signing key " + key.getAlgorithm() + "; use RSA or EC P-256");
+    }
+
+    // Unsigned big-endian bytes, left-padded to length when it is not 0
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
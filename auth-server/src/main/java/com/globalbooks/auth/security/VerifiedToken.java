@@ -0,0 +1,26 @@
+package com.globalbooks.auth.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * A token whose signature has been checked, with the user built from its claims and the time
+ * (epoch millis) after which it must no longer be accepted.
+ */
+public class VerifiedToken {
+
+    private final UserDetails user;
+    private final long expiresAt;
+
+    public VerifiedToken(UserDetails user, long expiresAt) {
+        this.user = user;
+        this.expiresAt = expiresAt;
+    }
+
+    public UserDetails getUser() {
+        return user;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
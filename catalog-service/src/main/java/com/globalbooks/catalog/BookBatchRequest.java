@@ -0,0 +1,24 @@
+package com.globalbooks.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookBatchRequest {
+
+    private List<String> ids = new ArrayList<>();
+
+    public BookBatchRequest() {
+    }
+
+    public BookBatchRequest(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,36 @@
+package com.globalbooks.catalog;
+
+import com.globalbooks.catalog.generated.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookBatchResponse {
+
+    private List<Book> books = new ArrayList<>();
+    private List<String> missingIds = new ArrayList<>();
+
+    public BookBatchResponse() {
+    }
+
+    public BookBatchResponse(List<Book> books, List<String> missingIds) {
+        this.books = books;
+        this.missingIds = missingIds;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<Book> books) {
+        this.books = books;
+    }
+
+    public List<String> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<String> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
@@ -1,30 +1,79 @@
 package com.globalbooks.catalog;
 
 import com.globalbooks.catalog.generated.GetBookDetailsRequest;
-import com.globalbooks.catalog.generated.GetBookDetailsResponse;
+import com.globalbooks.catalog.generated.GetBooksDetailsRequest;
+import com.globalbooks.catalog.generated.SearchBooksRequest;
+import com.globalbooks.catalog.search.BookSearchService;
+import com.globalbooks.catalog.search.SearchHit;
+import com.globalbooks.catalog.soap.BookResponseCache;
+import com.globalbooks.catalog.soap.InvalidSoapRequestException;
+import com.globalbooks.catalog.soap.SoapPayloadCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.ws.server.endpoint.annotation.Endpoint;
 import org.springframework.ws.server.endpoint.annotation.PayloadRoot;
 import org.springframework.ws.server.endpoint.annotation.RequestPayload;
 import org.springframework.ws.server.endpoint.annotation.ResponsePayload;
 
+import javax.xml.transform.Source;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binds requests with the pooled {@link SoapPayloadCodec} and answers from pre-serialized book
+ * fragments, instead of Spring-WS's per-call JAXB marshalling of the generated response types.
+ */
 @Endpoint
 public class BookEndpoint {
 
     private static final String NAMESPACE_URI = "http://globalbooks.com/catalog";
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
 
-    private final BookRepository bookRepository;
+    private final SoapPayloadCodec codec;
+    private final BookResponseCache responses;
+    private final BookSearchService bookSearchService;
+    private final int maxBatchSize;
 
     @Autowired
-    public BookEndpoint(BookRepository bookRepository) {
-        this.bookRepository = bookRepository;
+    public BookEndpoint(SoapPayloadCodec codec, BookResponseCache responses, BookSearchService bookSearchService,
+                        @Value("${catalog.batch.max-ids:500}") int maxBatchSize) {
+        this.codec = codec;
+        this.responses = responses;
+        this.bookSearchService = bookSearchService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getBookDetailsRequest")
     @ResponsePayload
-    public GetBookDetailsResponse getBookDetails(@RequestPayload GetBookDetailsRequest request) {
-        GetBookDetailsResponse response = new GetBookDetailsResponse();
-        response.setBook(bookRepository.findBookById(request.getId()));
-        return response;
+    public Source getBookDetails(@RequestPayload Source payload) {
+        GetBookDetailsRequest request = codec.read(payload, GetBookDetailsRequest.class);
+        return responses.bookDetails(request.getId());
+    }
+
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getBooksDetailsRequest")
+    @ResponsePayload
+    public Source getBooksDetails(@RequestPayload Source payload) {
+        GetBooksDetailsRequest request = codec.read(payload, GetBooksDetailsRequest.class);
+        // Same bound as POST /api/books:batch
+        if (request.getId().size() > maxBatchSize) {
+            throw new InvalidSoapRequestException("At most " + maxBatchSize + " ids per getBooksDetailsRequest");
+        }
+        Set<String> ids = new LinkedHashSet<>(request.getId());
+        ids.remove(null);
+        return responses.booksDetails(ids);
+    }
+
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "searchBooksRequest")
+    @ResponsePayload
+    public Source searchBooks(@RequestPayload Source payload) {
+        SearchBooksRequest request = codec.read(payload, SearchBooksRequest.class);
+        int limit = request.getLimit() != null ? request.getLimit() : DEFAULT_SEARCH_LIMIT;
+        List<String> ids = new ArrayList<>();
+        for (SearchHit hit : bookSearchService.search(request.getQuery(), limit)) {
+            ids.add(hit.getId());
+        }
+        return responses.searchResults(ids);
     }
 }
@@ -1,46 +1,232 @@
 package com.globalbooks.catalog;
 
 import com.globalbooks.catalog.generated.Book;
+import com.globalbooks.catalog.store.BookRecord;
+import com.globalbooks.catalog.store.CatalogIndex;
+import com.globalbooks.catalog.store.CatalogLoader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
+/**
+ * Single catalog store shared by the REST controller and the SOAP endpoint.
+ * Backed by a {@link CatalogIndex}, which is safe for concurrent readers and writers.
+ *
+ * A bulk reload fills a fresh index off to the side and swaps it in with one volatile write,
+ * so readers see either the old catalog or the complete new one and never wait. Saves and
+ * deletes made while the fresh index is built are replayed onto it at the swap.
+ */
 @Component
 public class BookRepository {
 
-    private static final Map<String, Book> books = new HashMap<>();
+    private volatile CatalogIndex index;
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    // Writers share the read lock; a swap takes the write lock, so no write lands in the old index after it
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Ids written since beginReload, or null when no reload is running; guarded by swapLock
+    private Set<String> changedDuringReload;
+
+    public BookRepository(@Value("${catalog.store.initial-capacity:1024}") int initialCapacity) {
+        this.index = new CatalogIndex(initialCapacity);
+    }
 
     @PostConstruct
     public void init() {
-        Book book1 = new Book();
-        book1.setId("1");
-        book1.setTitle("The Great Gatsby");
-        book1.setAuthor("F. Scott Fitzgerald");
-        books.put(book1.getId(), book1);
-
-        Book book2 = new Book();
-        book2.setId("2");
-        book2.setTitle("To Kill a Mockingbird");
-        book2.setAuthor("Harper Lee");
-        books.put(book2.getId(), book2);
-
-        Book book3 = new Book();
-        book3.setId("3");
-        book3.setTitle("1984");
-        book3.setAuthor("George Orwell");
-        books.put(book3.getId(), book3);
-        
+        save(newBook("1", "The Great Gatsby", "F. Scott Fitzgerald"));
+        save(newBook("2", "To Kill a Mockingbird", "Harper Lee"));
+        save(newBook("3", "1984", "George Orwell"));
+
         // Add the test book with ISBN
-        Book book4 = new Book();
-        book4.setId("978-0134685991");
-        book4.setTitle("Clean Code");
-        book4.setAuthor("Robert C. Martin");
-        books.put(book4.getId(), book4);
+        save(newBook("978-0134685991", "Clean Code", "Robert C. Martin"));
     }
 
     public Book findBookById(String id) {
-        return books.get(id);
+        BookRecord record = index.get(id);
+        return record != null ? record.toBook() : null;
+    }
+
+    /**
+     * Returns the stored record itself. Every save stores a new record, so callers can
+     * compare records by identity to tell whether a book changed.
+     */
+    public BookRecord findRecordById(String id) {
+        return index.get(id);
+    }
+
+    /**
+     * Looks up several books in one call. The result preserves request order,
+     * holds each id at most once and leaves out ids that are not in the catalog.
+     */
+    public Map<String, Book> findBooksByIds(Collection<String> ids) {
+        // One index for the whole batch, so a concurrent reload cannot mix two catalogs
+        CatalogIndex current = index;
+        Map<String, Book> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (id != null && !found.containsKey(id)) {
+                BookRecord record = current.get(id);
+                if (record != null) {
+                    found.put(id, record.toBook());
+                }
+            }
+        }
+        return found;
+    }
+
+    public List<Book> findBooksByAuthor(String author) {
+        return toBooks(index.findByAuthor(author));
+    }
+
+    public List<Book> findBooksByTitlePrefix(String prefix, int limit) {
+        return toBooks(index.findByTitlePrefix(prefix, limit));
+    }
+
+    public Book save(Book book) {
+        BookRecord record = BookRecord.from(book);
+        swapLock.readLock().lock();
+        try {
+            index.put(record);
+            trackReloadChange(record.getId());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        notifyChanged(book.getId());
+        return book;
+    }
+
+    public boolean delete(String id) {
+        boolean removed;
+        swapLock.readLock().lock();
+        try {
+            removed = index.remove(id) != null;
+            if (removed) {
+                trackReloadChange(id);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (removed) {
+            notifyChanged(id);
+        }
+        return removed;
+    }
+
+    /**
+     * Starts a bulk reload and returns the loader for the new catalog, or null while another
+     * reload is running. Finish it with {@link #completeReload} or {@link #abandonReload}.
+     */
+    public CatalogLoader beginReload(int expectedSize) {
+        swapLock.writeLock().lock();
+        try {
+            if (changedDuringReload != null) {
+                return null;
+            }
+            changedDuringReload = ConcurrentHashMap.newKeySet();
+            return new CatalogLoader(expectedSize, index);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replays the writes made since {@link #beginReload} onto the built index, so they win over
+     * the feed, and swaps it in. Writes wait for the replay; reads carry on against the old index.
+     */
+    public void completeReload(CatalogIndex fresh) {
+        swapLock.writeLock().lock();
+        try {
+            CatalogIndex previous = index;
+            for (String id : changedDuringReload) {
+                BookRecord current = previous.get(id);
+                if (current != null) {
+                    fresh.put(current);
+                } else {
+                    fresh.remove(id);
+                }
+            }
+            fresh.continueAfter(previous);
+            index = fresh;
+            changedDuringReload = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        for (Runnable listener : reloadListeners) {
+            listener.run();
+        }
+    }
+
+    public void abandonReload() {
+        swapLock.writeLock().lock();
+        try {
+            changedDuringReload = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // Called after a reload replaced the whole catalog, on the reloading thread
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    private void trackReloadChange(String id) {
+        if (changedDuringReload != null) {
+            changedDuringReload.add(id);
+        }
+    }
+
+    // Called with the book id after every save or delete, on the writing thread
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    private void notifyChanged(String id) {
+        for (Consumer<String> listener : changeListeners) {
+            listener.accept(id);
+        }
+    }
+
+    public Collection<BookRecord> allRecords() {
+        return index.records();
+    }
+
+    public int count() {
+        return index.size();
+    }
+
+    /**
+     * Catalog-wide version: changes after every completed save or delete. Read it before
+     * fetching books, so a change made during the fetch still shows up as a new version.
+     */
+    public long version() {
+        return index.version();
+    }
+
+    private static Book newBook(String id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+
+    private static List<Book> toBooks(List<BookRecord> records) {
+        List<Book> books = new ArrayList<>(records.size());
+        for (BookRecord record : records) {
+            books.add(record.toBook());
+        }
+        return books;
     }
 }
@@ -1,25 +1,134 @@
 package com.globalbooks.catalog;
 
 import com.globalbooks.catalog.generated.Book;
+import com.globalbooks.catalog.search.BookSearchService;
+import com.globalbooks.catalog.search.SearchHit;
+import com.globalbooks.catalog.store.BookRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 @RestController
-@RequestMapping("/api/books")
+@RequestMapping("/api")
 public class BookRestController {
 
+    private static final int MAX_RESULTS = 100;
+
     private final BookRepository bookRepository;
+    private final BookSearchService bookSearchService;
+    private final int maxBatchSize;
+    private final CacheControl cacheControl;
 
     @Autowired
-    public BookRestController(BookRepository bookRepository) {
+    public BookRestController(BookRepository bookRepository,
+                              BookSearchService bookSearchService,
+                              @Value("${catalog.batch.max-ids:500}") int maxBatchSize,
+                              @Value("${catalog.http.cache-control.max-age-seconds:60}") long maxAgeSeconds,
+                              @Value("${catalog.http.cache-control.public:true}") boolean cachePublic,
+                              @Value("${catalog.http.cache-control.stale-while-revalidate-seconds:0}") long staleWhileRevalidateSeconds) {
         this.bookRepository = bookRepository;
+        this.bookSearchService = bookSearchService;
+        this.maxBatchSize = maxBatchSize;
+        CacheControl policy = maxAgeSeconds > 0 ? CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS) : CacheControl.noCache();
+        policy = cachePublic ? policy.cachePublic() : policy.cachePrivate();
+        if (staleWhileRevalidateSeconds > 0) {
+            policy = policy.staleWhileRevalidate(staleWhileRevalidateSeconds, TimeUnit.SECONDS);
+        }
+        this.cacheControl = policy;
+    }
+
+    // Strong ETag of the stored version; a matching If-None-Match or If-Modified-Since gets 304 without a body
+    @GetMapping("/books/{id}")
+    public ResponseEntity<Book> getBookById(@PathVariable String id) {
+        BookRecord record = bookRepository.findRecordById(id);
+        if (record == null) {
+            // Unknown ids keep answering 200 with no body, which clients treat as not found
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag("\"" + record.getVersion() + "\"")
+                .lastModified(record.getModifiedAt())
+                .cacheControl(cacheControl)
+                .body(record.toBook());
+    }
+
+    /**
+     * Catalog-wide version for revalidating a whole local cache in one call: while it is
+     * unchanged, no book has changed.
+     */
+    @GetMapping("/catalog/version")
+    public ResponseEntity<Map<String, Object>> getCatalogVersion() {
+        long version = bookRepository.version();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", version);
+        body.put("books", bookRepository.count());
+        return ResponseEntity.ok()
+                .eTag("\"catalog-" + version + "\"")
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 
-    @GetMapping("/{id}")
-    public Book getBookById(@PathVariable String id) {
-        return bookRepository.findBookById(id);
+    // Secondary index lookups: /api/books?author=... or /api/books?titlePrefix=...
+    @GetMapping("/books")
+    public ResponseEntity<List<Book>> findBooks(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String titlePrefix,
+            @RequestParam(defaultValue = "20") int limit) {
+        // Read before the lookup: a change made meanwhile gives the next request a different ETag
+        String eTag = "\"catalog-" + bookRepository.version() + "\"";
+        if (author != null) {
+            return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl)
+                    .body(bookRepository.findBooksByAuthor(author));
+        }
+        if (titlePrefix != null) {
+            return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl)
+                    .body(bookRepository.findBooksByTitlePrefix(titlePrefix, Math.min(limit, MAX_RESULTS)));
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    // Full-text search over titles and authors: /api/books/search?q=...&limit=10, best match first
+    @GetMapping("/books/search")
+    public ResponseEntity<List<SearchHit>> searchBooks(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "10") int limit) {
+        if (q.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(bookSearchService.search(q, limit));
+    }
+
+    // Bulk lookup: returns every found book plus the ids that are not in the catalog
+    @PostMapping("/books:batch")
+    public ResponseEntity<BookBatchResponse> getBooksByIds(@RequestBody BookBatchRequest request) {
+        if (request.getIds() == null || request.getIds().size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> ids = new LinkedHashSet<>(request.getIds());
+        ids.remove(null);
+        Map<String, Book> found = bookRepository.findBooksByIds(ids);
+
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            if (!found.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        return ResponseEntity.ok(new BookBatchResponse(new ArrayList<>(found.values()), missingIds));
     }
 }
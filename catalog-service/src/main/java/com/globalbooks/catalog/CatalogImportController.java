@@ -0,0 +1,94 @@
+package com.globalbooks.catalog;
+
+import com.globalbooks.catalog.bulk.CatalogImporter;
+import com.globalbooks.catalog.bulk.FeedFormat;
+import com.globalbooks.catalog.bulk.ImportInProgressException;
+import com.globalbooks.catalog.bulk.ImportReport;
+import com.globalbooks.common.security.BasicAuthentication;
+import com.globalbooks.common.security.ConfiguredCredentialStore;
+import com.globalbooks.common.security.CredentialStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk catalog reload. The request body is the feed, streamed straight into the importer.
+ * The endpoints answer 404 unless catalog.import.endpoint-enabled is set, and then require
+ * HTTP Basic credentials from catalog.import.admin-credentials. SOAP clients, who only read
+ * the catalog, are not accepted here.
+ */
+@RestController
+@RequestMapping("/api/admin/catalog")
+public class CatalogImportController {
+
+    private final CatalogImporter catalogImporter;
+    private final CredentialStore adminCredentials;
+
+    @Value("${catalog.import.endpoint-enabled:false}")
+    private boolean endpointEnabled;
+
+    public CatalogImportController(CatalogImporter catalogImporter,
+                                   @Value("${catalog.import.admin-credentials:}") String adminCredentials) {
+        this.catalogImporter = catalogImporter;
+        this.adminCredentials = new ConfiguredCredentialStore(adminCredentials);
+    }
+
+    // Format from ?format=csv|jsonl|onix, else from the Content-Type (text/csv, application/x-ndjson, application/xml)
+    @PostMapping("/import")
+    public ResponseEntity<?> importCatalog(@RequestParam(required = false) String format,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                           @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                           InputStream body) {
+        ResponseEntity<?> refused = refuse(authorization);
+        if (refused != null) {
+            return refused;
+        }
+        FeedFormat feedFormat = FeedFormat.resolve(format != null ? format : contentType);
+        if (feedFormat == null) {
+            return ResponseEntity.badRequest().body("Unknown feed format; use csv, jsonl or onix");
+        }
+        try {
+            ImportReport report = catalogImporter.importFeed(body, feedFormat);
+            // Too many invalid records: nothing was replaced
+            return report.isSwapped() ? ResponseEntity.ok(report) : ResponseEntity.unprocessableEntity().body(report);
+        } catch (ImportInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Unreadable feed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<?> getLastImport(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        ResponseEntity<?> refused = refuse(authorization);
+        if (refused != null) {
+            return refused;
+        }
+        ImportReport report = catalogImporter.lastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    // Returns the response for a caller that may not use the endpoint, or null if it may
+    private ResponseEntity<?> refuse(String authorization) {
+        if (!endpointEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!BasicAuthentication.authenticated(adminCredentials, authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"catalog-admin\"")
+                    .build();
+        }
+        return null;
+    }
+}
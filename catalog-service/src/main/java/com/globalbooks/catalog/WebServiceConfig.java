@@ -1,6 +1,9 @@
 package com.globalbooks.catalog;
 
 import com.globalbooks.catalog.security.CatalogSecurityInterceptor;
+import com.globalbooks.common.security.ConfiguredCredentialStore;
+import com.globalbooks.common.security.CredentialStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -13,13 +16,24 @@ import org.springframework.ws.transport.http.MessageDispatcherServlet;
 import org.springframework.ws.wsdl.wsdl11.DefaultWsdl11Definition;
 import org.springframework.xml.xsd.SimpleXsdSchema;
 import org.springframework.xml.xsd.XsdSchema;
+import org.xml.sax.SAXException;
 
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
 import java.util.List;
 
 @EnableWs
 @Configuration
 public class WebServiceConfig extends WsConfigurerAdapter {
 
+    private final CatalogSecurityInterceptor catalogSecurityInterceptor;
+
+    public WebServiceConfig(CatalogSecurityInterceptor catalogSecurityInterceptor) {
+        this.catalogSecurityInterceptor = catalogSecurityInterceptor;
+    }
+
     @Bean
     public ServletRegistrationBean<MessageDispatcherServlet> messageDispatcherServlet(ApplicationContext applicationContext) {
         MessageDispatcherServlet servlet = new MessageDispatcherServlet();
@@ -28,6 +42,12 @@ public class WebServiceConfig extends WsConfigurerAdapter {
         return new ServletRegistrationBean<>(servlet, "/ws/*");
     }
 
+    // Static, so the interceptor injected into this configuration can be built before it
+    @Bean
+    public static CredentialStore credentialStore(@Value("${ws.security.credentials:}") String credentials) {
+        return new ConfiguredCredentialStore(credentials);
+    }
+
     @Bean(name = "books")
     public DefaultWsdl11Definition defaultWsdl11Definition(XsdSchema booksSchema) {
         DefaultWsdl11Definition wsdl11Definition = new DefaultWsdl11Definition();
@@ -42,23 +62,19 @@ public class WebServiceConfig extends WsConfigurerAdapter {
     public XsdSchema booksSchema() {
         return new SimpleXsdSchema(new ClassPathResource("books.xsd"));
     }
-    
-    /**
-     * WS-Security interceptor for SOAP endpoints ONLY.
-     * 
-     * CRITICAL: This interceptor only affects SOAP requests to /ws/* endpoints.
-     * REST endpoints at /api/* are completely unaffected and continue to work
-     * without any authentication changes.
-     */
+
+    // books.xsd compiled once; a Schema is thread-safe and shared by every request validator
     @Bean
-    public CatalogSecurityInterceptor catalogSecurityInterceptor() {
-        return new CatalogSecurityInterceptor();
+    public Schema booksValidationSchema() throws IOException, SAXException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        return factory.newSchema(new ClassPathResource("books.xsd").getURL());
     }
     
     @Override
     public void addInterceptors(List<EndpointInterceptor> interceptors) {
-        // Add WS-Security interceptor ONLY for SOAP endpoints
-        interceptors.add(catalogSecurityInterceptor());
+        // WS-Security UsernameToken check, applied to SOAP endpoints ONLY;
+        // REST endpoints at /api/* are unaffected
+        interceptors.add(catalogSecurityInterceptor);
         super.addInterceptors(interceptors);
     }
 }
@@ -0,0 +1,216 @@
+package com.globalbooks.catalog.bulk;
+
+import com.globalbooks.catalog.BookRepository;
+import com.globalbooks.catalog.store.CatalogLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replaces the whole catalog from a feed without pausing lookups.
+ *
+ * The calling thread streams the feed and cuts it into batches of raw records. Batches are
+ * parsed, validated and added to a {@link CatalogLoader} on a dedicated fork-join pool. At
+ * most a few batches per worker are in flight, so memory for parsing stays constant however
+ * large the feed is. Once the feed is read, the loader builds the new index and the repository
+ * swaps it in; until then readers keep getting the previous catalog.
+ *
+ * Invalid records are skipped and reported. Past max-rejected of them the import stops and
+ * the previous catalog stays in place.
+ */
+@Component
+public class CatalogImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImporter.class);
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final BookRepository bookRepository;
+    private final ForkJoinPool workers;
+    private final int batchSize;
+    private final int maxInFlightBatches;
+    private final long maxRejected;
+    private final int initialCapacity;
+    private final String startupFile;
+    private volatile ImportReport lastReport;
+
+    public CatalogImporter(BookRepository bookRepository,
+                           @Value("${catalog.import.parallelism:0}") int parallelism,
+                           @Value("${catalog.import.batch-size:2048}") int batchSize,
+                           @Value("${catalog.import.max-rejected:1000}") long maxRejected,
+                           @Value("${catalog.store.initial-capacity:1024}") int initialCapacity,
+                           @Value("${catalog.import.file:}") String startupFile) {
+        this.bookRepository = bookRepository;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.workers = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("catalog-import-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.batchSize = batchSize;
+        this.maxInFlightBatches = threads * 4;
+        this.maxRejected = maxRejected;
+        this.initialCapacity = initialCapacity;
+        this.startupFile = startupFile;
+    }
+
+    // A configured feed replaces the built-in sample books before the service takes traffic
+    @PostConstruct
+    public void loadStartupFile() {
+        if (startupFile.isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(startupFile);
+        FeedFormat format = FeedFormat.forFileName(path.getFileName().toString());
+        if (format == null) {
+            logger.error("Not importing {}: unknown feed format (use .csv, .jsonl, .ndjson or .xml)", path);
+            return;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            importFeed(in, format);
+        } catch (IOException e) {
+            logger.error("Import of {} failed, keeping the current catalog", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Reads the whole feed and, unless too many records were rejected, makes it the catalog.
+     * Saves and deletes made while it runs are kept. Throws {@link ImportInProgressException}
+     * if another import is running, and IOException if the feed is unreadable.
+     */
+    public ImportReport importFeed(InputStream in, FeedFormat format) throws IOException {
+        long started = System.nanoTime();
+        CatalogLoader loader = bookRepository.beginReload(Math.max(initialCapacity, bookRepository.count()));
+        if (loader == null) {
+            throw new ImportInProgressException();
+        }
+        Progress progress = new Progress();
+        boolean swapped = false;
+        try {
+            try (FeedReader<?> reader = format.open(in)) {
+                load(reader, loader, progress);
+            }
+            if (progress.rejected.get() <= maxRejected) {
+                bookRepository.completeReload(loader.build());
+                swapped = true;
+            }
+        } finally {
+            if (!swapped) {
+                bookRepository.abandonReload();
+            }
+        }
+        ImportReport report = new ImportReport(format, progress.records, progress.rejected.get(), loader.size(),
+                swapped, bookRepository.version(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                progress.errors());
+        lastReport = report;
+        if (swapped) {
+            logger.info("Imported {} books from {} {} records in {} ms ({} rejected)", report.getBooks(),
+                    report.getRecords(), format, report.getDurationMs(), report.getRejected());
+        } else {
+            logger.warn("Discarded {} import after {} rejected records; first errors: {}", format,
+                    report.getRejected(), report.getErrors());
+        }
+        return report;
+    }
+
+    // Null until the first import finishes
+    public ImportReport lastReport() {
+        return lastReport;
+    }
+
+    private <R> void load(FeedReader<R> reader, CatalogLoader loader, Progress progress) throws IOException {
+        Semaphore slots = new Semaphore(maxInFlightBatches);
+        long read = 0;
+        List<R> batch = new ArrayList<>(batchSize);
+        try {
+            // Stop reading early once the import can no longer succeed
+            for (R raw = reader.next(); raw != null && progress.rejected.get() <= maxRejected; raw = reader.next()) {
+                batch.add(raw);
+                if (batch.size() == batchSize) {
+                    submit(reader, batch, read + 1, loader, progress, slots);
+                    read += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(reader, batch, read + 1, loader, progress, slots);
+                read += batch.size();
+            }
+            // Every permit back means every batch is done
+            slots.acquire(maxInFlightBatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Catalog import interrupted");
+        }
+        progress.records = read;
+        if (progress.failure != null) {
+            throw new IllegalStateException("Catalog import failed", progress.failure);
+        }
+    }
+
+    private <R> void submit(FeedReader<R> reader, List<R> batch, long firstRecord, CatalogLoader loader,
+                            Progress progress, Semaphore slots) throws InterruptedException {
+        // Blocks the reading thread while the workers are behind
+        slots.acquire();
+        workers.execute(() -> {
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        loader.add(firstRecord + i, reader.parse(batch.get(i)));
+                    } catch (InvalidRecordException e) {
+                        progress.reject(firstRecord + i, e.getMessage());
+                    }
+                }
+            } catch (RuntimeException e) {
+                progress.failure = e;
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private static final class Progress {
+        final AtomicLong rejected = new AtomicLong();
+        final List<String> errors = new ArrayList<>();
+        volatile RuntimeException failure;
+        long records;
+
+        void reject(long record, String reason) {
+            rejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("record " + record + ": " + reason);
+                }
+            }
+        }
+
+        List<String> errors() {
+            synchronized (errors) {
+                return Collections.unmodifiableList(new ArrayList<>(errors));
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.globalbooks.catalog.bulk;
+
+import com.globalbooks.catalog.store.BookRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RFC 4180 CSV with a header row. Columns are found by name (id or isbn, title, author);
+ * others are ignored. Quoted fields may contain commas, doubled quotes and line breaks.
+ */
+final class CsvFeedReader implements FeedReader<String> {
+
+    private final BufferedReader reader;
+    private final int idColumn;
+    private final int titleColumn;
+    private final int authorColumn;
+
+    CsvFeedReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String header = next();
+        if (header == null) {
+            throw new IOException("CSV feed is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> columns = split(header);
+        int id = -1;
+        int title = -1;
+        int author = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).trim().toLowerCase(Locale.ROOT);
+            if (id < 0 && (column.equals("id") || column.equals("isbn"))) {
+                id = i;
+            } else if (title < 0 && column.equals("title")) {
+                title = i;
+            } else if (author < 0 && column.equals("author")) {
+                author = i;
+            }
+        }
+        if (id < 0 || title < 0) {
+            throw new IOException("CSV header needs id (or isbn) and title columns: " + header);
+        }
+        this.idColumn = id;
+        this.titleColumn = title;
+        this.authorColumn = author;
+    }
+
+    // One record, which spans several lines while a quoted field is open
+    @Override
+    public String next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isEmpty());
+        if (!openQuote(line, false)) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        boolean open = true;
+        while (open) {
+            String more = reader.readLine();
+            if (more == null) {
+                // Unterminated quote: hand it over as is and let parse() reject it
+                break;
+            }
+            record.append('\n').append(more);
+            open = openQuote(more, true);
+        }
+        return record.toString();
+    }
+
+    @Override
+    public BookRecord parse(String raw) {
+        List<String> fields = split(raw);
+        return FeedReader.validated(field(fields, idColumn), field(fields, titleColumn),
+                authorColumn >= 0 ? field(fields, authorColumn) : null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    // Whether a quoted field is still open at the end of line; doubled quotes toggle twice
+    private static boolean openQuote(String line, boolean open) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    static List<String> split(String record) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"') {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidRecordException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,61 @@
+package com.globalbooks.catalog.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Catalog feed formats accepted by the {@link CatalogImporter}.
+ */
+public enum FeedFormat {
+
+    // Header row naming the columns (id or isbn, title, author), then one book per record
+    CSV,
+    // One JSON object per line: {"id": ..., "title": ..., "author": ...}
+    JSON_LINES,
+    // ONIX for Books style XML with reference tag names: one <Product> per book
+    ONIX;
+
+    /**
+     * Resolves a format name (csv, jsonl, ndjson, onix, xml) or content type, or returns null.
+     */
+    public static FeedFormat resolve(String value) {
+        if (value == null) {
+            return null;
+        }
+        String name = value.toLowerCase(Locale.ROOT);
+        int parameters = name.indexOf(';');
+        if (parameters >= 0) {
+            name = name.substring(0, parameters);
+        }
+        name = name.trim();
+        if (name.equals("csv") || name.equals("text/csv")) {
+            return CSV;
+        }
+        if (name.equals("jsonl") || name.equals("ndjson") || name.equals("json_lines")
+                || name.equals("application/x-ndjson") || name.equals("application/jsonl")) {
+            return JSON_LINES;
+        }
+        if (name.equals("onix") || name.equals("xml") || name.equals("application/xml") || name.equals("text/xml")) {
+            return ONIX;
+        }
+        return null;
+    }
+
+    // By file extension, e.g. catalog.csv or feed.onix.xml
+    public static FeedFormat forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? resolve(fileName.substring(dot + 1)) : null;
+    }
+
+    FeedReader<?> open(InputStream in) throws IOException {
+        switch (this) {
+            case CSV:
+                return new CsvFeedReader(in);
+            case JSON_LINES:
+                return new JsonLinesFeedReader(in);
+            default:
+                return new OnixFeedReader(in);
+        }
+    }
+}
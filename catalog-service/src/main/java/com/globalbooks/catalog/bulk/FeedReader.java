@@ -0,0 +1,62 @@
+package com.globalbooks.catalog.bulk;
+
+import com.globalbooks.catalog.store.BookRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams a feed as raw records. {@link #next()} runs on the single reading thread and only
+ * finds record boundaries; {@link #parse} does the per-record work and runs on the import
+ * workers, so it must not touch reader state.
+ *
+ * @param <R> raw record type
+ */
+interface FeedReader<R> extends Closeable {
+
+    int MAX_ID_LENGTH = 64;
+    int MAX_TITLE_LENGTH = 1024;
+    int MAX_AUTHOR_LENGTH = 512;
+
+    /**
+     * Returns the next raw record, or null at the end of the feed. Throws if the feed itself is
+     * malformed past recovery (bad header, broken XML).
+     */
+    R next() throws IOException;
+
+    /**
+     * Turns a raw record into a validated book, or throws {@link InvalidRecordException}.
+     */
+    BookRecord parse(R raw);
+
+    static BookRecord validated(String id, String title, String author) {
+        id = check("id", id, MAX_ID_LENGTH);
+        title = check("title", title, MAX_TITLE_LENGTH);
+        author = check("author", author, MAX_AUTHOR_LENGTH);
+        if (id.isEmpty()) {
+            throw new InvalidRecordException("missing id");
+        }
+        if (title.isEmpty()) {
+            throw new InvalidRecordException("missing title for " + id);
+        }
+        return new BookRecord(id, title, author);
+    }
+
+    // Trimmed value; characters that XML 1.0 cannot carry are refused, as SOAP responses would break on them
+    static String check(String field, String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() > maxLength) {
+            throw new InvalidRecordException(field + " longer than " + maxLength + " characters");
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF) {
+                throw new InvalidRecordException(field + " contains control characters");
+            }
+        }
+        return trimmed;
+    }
+}
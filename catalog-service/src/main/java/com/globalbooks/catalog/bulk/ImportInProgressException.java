@@ -0,0 +1,11 @@
+package com.globalbooks.catalog.bulk;
+
+/**
+ * Thrown when a catalog import is requested while another one is still running.
+ */
+public class ImportInProgressException extends RuntimeException {
+
+    public ImportInProgressException() {
+        super("A catalog import is already running");
+    }
+}
@@ -0,0 +1,66 @@
+package com.globalbooks.catalog.bulk;
+
+import java.util.List;
+
+/**
+ * Outcome of one catalog import. When {@code swapped} is false the previous catalog is
+ * still being served unchanged.
+ */
+public class ImportReport {
+
+    private final FeedFormat format;
+    private final long records;
+    private final long rejected;
+    private final int books;
+    private final boolean swapped;
+    private final long catalogVersion;
+    private final long durationMs;
+    private final List<String> errors;
+
+    ImportReport(FeedFormat format, long records, long rejected, int books, boolean swapped,
+                 long catalogVersion, long durationMs, List<String> errors) {
+        this.format = format;
+        this.records = records;
+        this.rejected = rejected;
+        this.books = books;
+        this.swapped = swapped;
+        this.catalogVersion = catalogVersion;
+        this.durationMs = durationMs;
+        this.errors = errors;
+    }
+
+    public FeedFormat getFormat() {
+        return format;
+    }
+
+    // Records read from the feed
+    public long getRecords() {
+        return records;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    // Books in the new catalog (a later record with the same id replaces an earlier one)
+    public int getBooks() {
+        return books;
+    }
+
+    public boolean isSwapped() {
+        return swapped;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    // The first few problems, with their record numbers
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,11 @@
+package com.globalbooks.catalog.bulk;
+
+/**
+ * A feed record that cannot become a book. The import counts it and carries on.
+ */
+class InvalidRecordException extends RuntimeException {
+
+    InvalidRecordException(String message) {
+        super(message);
+    }
+}
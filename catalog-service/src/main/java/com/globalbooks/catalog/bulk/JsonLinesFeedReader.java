@@ -0,0 +1,65 @@
+package com.globalbooks.catalog.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.globalbooks.catalog.store.BookRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON lines: one object per line with id (or isbn), title and author. Lines are split on the
+ * reading thread and parsed by the workers.
+ */
+final class JsonLinesFeedReader implements FeedReader<String> {
+
+    // ObjectMapper is thread-safe once configured
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedReader reader;
+
+    JsonLinesFeedReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public String next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+        return line;
+    }
+
+    @Override
+    public BookRecord parse(String raw) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(raw);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRecordException("malformed JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new InvalidRecordException("not a JSON object");
+        }
+        String id = text(node, "id");
+        return FeedReader.validated(id != null ? id : text(node, "isbn"), text(node, "title"), text(node, "author"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.globalbooks.catalog.bulk;
+
+import com.globalbooks.catalog.store.BookRecord;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ONIX for Books (2.1 or 3.0, reference tag names, any namespace), read with StAX one
+ * {@code <Product>} at a time. Only the fields the catalog keeps are picked up:
+ * <ul>
+ *   <li>id: the ISBN-13 product identifier (ProductIDType 15), else the RecordReference</li>
+ *   <li>title: the first TitleText outside a Collection</li>
+ *   <li>author: the first contributor with role A01 (by author), else the first contributor,
+ *   again outside a Collection</li>
+ * </ul>
+ * XML parsing is inherently sequential, so it happens in {@link #next()}; workers only validate.
+ */
+final class OnixFeedReader implements FeedReader<String[]> {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // Feeds are untrusted input: no DTDs, no external entities
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final InputStream in;
+    private final XMLStreamReader xml;
+
+    OnixFeedReader(InputStream in) throws IOException {
+        this.in = in;
+        try {
+            this.xml = FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unreadable ONIX feed: " + e.getMessage(), e);
+        }
+    }
+
+    // {id, title, author} of the next product
+    @Override
+    public String[] next() throws IOException {
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "Product".equals(xml.getLocalName())) {
+                    return product();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed ONIX feed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public BookRecord parse(String[] raw) {
+        return FeedReader.validated(raw[0], raw[1], raw[2]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            // Nothing left to read from it
+        }
+        in.close();
+    }
+
+    // Reads up to the end of the current Product
+    private String[] product() throws XMLStreamException {
+        String recordReference = null;
+        String isbn = null;
+        String title = null;
+        String author = null;
+        String firstContributor = null;
+        String idType = null;
+        String idValue = null;
+        String role = null;
+        String personName = null;
+        String namesBeforeKey = null;
+        String keyNames = null;
+        boolean inCollection = false;
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                // Leaf elements are read whole (through their end tag), so only containers change depth
+                switch (xml.getLocalName()) {
+                    case "RecordReference":
+                        recordReference = xml.getElementText();
+                        break;
+                    case "ProductIDType":
+                        idType = xml.getElementText().trim();
+                        break;
+                    case "IDValue":
+                        idValue = xml.getElementText();
+                        break;
+                    case "TitleText":
+                        String text = xml.getElementText();
+                        if (title == null && !inCollection) {
+                            title = text;
+                        }
+                        break;
+                    case "ContributorRole":
+                        role = xml.getElementText().trim();
+                        break;
+                    case "PersonName":
+                        personName = xml.getElementText();
+                        break;
+                    case "NamesBeforeKey":
+                        namesBeforeKey = xml.getElementText();
+                        break;
+                    case "KeyNames":
+                        keyNames = xml.getElementText();
+                        break;
+                    case "Collection":
+                        inCollection = true;
+                        depth++;
+                        break;
+                    default:
+                        depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                switch (xml.getLocalName()) {
+                    case "ProductIdentifier":
+                        if ("15".equals(idType)) {
+                            isbn = idValue;
+                        }
+                        idType = null;
+                        idValue = null;
+                        break;
+                    case "Contributor":
+                        String name = personName != null ? personName
+                                : keyNames != null ? (namesBeforeKey != null ? namesBeforeKey.trim() + " " : "") + keyNames.trim()
+                                : null;
+                        if (name != null && !inCollection) {
+                            if (author == null && "A01".equals(role)) {
+                                author = name;
+                            }
+                            if (firstContributor == null) {
+                                firstContributor = name;
+                            }
+                        }
+                        role = null;
+                        personName = null;
+                        namesBeforeKey = null;
+                        keyNames = null;
+                        break;
+                    case "Collection":
+                        inCollection = false;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return new String[] {isbn != null ? isbn : recordReference, title, author != null ? author : firstContributor};
+    }
+}
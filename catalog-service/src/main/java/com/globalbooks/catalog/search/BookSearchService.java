@@ -0,0 +1,196 @@
+package com.globalbooks.catalog.search;
+
+import com.globalbooks.catalog.BookRepository;
+import com.globalbooks.catalog.store.BookRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full-text search over the catalog: an immutable {@link SearchIndex} snapshot plus a small
+ * delta of the books changed since it was built.
+ *
+ * Every save or delete records the book's current terms in the delta, so results reflect a
+ * change immediately. Snapshot docs for changed books are skipped in favour of their delta
+ * entry. Once the delta grows past rebuild-after-changes, or on the next refresh tick, a new
+ * snapshot is built in the background and swapped in, and the changes it covers leave the delta.
+ * A bulk reload of the catalog starts a rebuild at once; until it lands, results are ranked
+ * against the previous catalog and books no longer in it are left out.
+ */
+@Component
+public class BookSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchService.class);
+
+    public static final int MAX_LIMIT = 100;
+
+    private final BookRepository bookRepository;
+    private final int rebuildAfterChanges;
+    private final long refreshSeconds;
+    private final ScheduledExecutorService rebuilder;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private volatile SearchIndex snapshot = SearchIndex.build(Collections.emptyList());
+    private final Map<String, Change> changes = new ConcurrentHashMap<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    public BookSearchService(BookRepository bookRepository,
+                             @Value("${catalog.search.rebuild-after-changes:1000}") int rebuildAfterChanges,
+                             @Value("${catalog.search.refresh-seconds:5}") long refreshSeconds) {
+        this.bookRepository = bookRepository;
+        this.rebuildAfterChanges = rebuildAfterChanges;
+        this.refreshSeconds = refreshSeconds;
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("catalog-search-index-");
+        threads.setDaemon(true);
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(threads);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Listen first, so a change made while the first snapshot is built is not missed
+        bookRepository.addChangeListener(this::recordChange);
+        bookRepository.addReloadListener(this::scheduleRebuild);
+        rebuild();
+        rebuilder.scheduleWithFixedDelay(() -> {
+            if (!changes.isEmpty()) {
+                scheduleRebuild();
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Returns up to limit (at most {@link #MAX_LIMIT}) books matching any term of the query,
+     * best BM25 score first.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+        SearchIndex index = snapshot;
+        TopK top = new TopK(limit);
+
+        // Changed books first: they are few, and their scores raise the threshold for the snapshot pass
+        List<BookRecord> changed = new ArrayList<>();
+        Map<String, Float> idfs = new HashMap<>();
+        for (Change change : changes.values()) {
+            if (change.record == null) {
+                continue;
+            }
+            float score = 0f;
+            for (String term : terms) {
+                Integer tf = change.frequencies.get(term);
+                if (tf != null) {
+                    float idf = idfs.computeIfAbsent(term, index::idf);
+                    score += SearchIndex.termScore(idf, tf,
+                            SearchIndex.lengthNorm(change.length, index.averageLength()));
+                }
+            }
+            if (score > top.threshold()) {
+                changed.add(change.record);
+                // Negative docs refer to changed books, so they never collide with snapshot docs
+                top.offer(score, -changed.size());
+            }
+        }
+        index.search(terms, top, doc -> changes.containsKey(index.bookId(doc)));
+
+        int[] docs = new int[top.size()];
+        float[] scores = new float[top.size()];
+        int count = top.drainBestFirst(docs, scores);
+        List<SearchHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BookRecord record = docs[i] < 0
+                    ? changed.get(-docs[i] - 1)
+                    : bookRepository.findRecordById(index.bookId(docs[i]));
+            // A snapshot book deleted since this search started is simply left out
+            if (record != null) {
+                hits.add(new SearchHit(record, scores[i]));
+            }
+        }
+        return hits;
+    }
+
+    public int indexedBooks() {
+        return snapshot.size();
+    }
+
+    public int pendingChanges() {
+        return changes.size();
+    }
+
+    private void recordChange(String bookId) {
+        // Per-id compute reads the record after the write, so the latest change of a book always wins
+        changes.compute(bookId, (id, previous) -> {
+            BookRecord record = bookRepository.findRecordById(id);
+            return new Change(changeSequence.incrementAndGet(), record);
+        });
+        if (changes.size() >= rebuildAfterChanges) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        // Every change up to here completed before the books are read below, so the snapshot includes it
+        long coveredSequence = changeSequence.get();
+        SearchIndex index = SearchIndex.build(bookRepository.allRecords());
+        snapshot = index;
+        changes.values().removeIf(change -> change.sequence <= coveredSequence);
+        logger.debug("Built search index of {} books in {} ms", index.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // A changed book's current record (null once deleted) with its term frequencies
+    private static final class Change {
+        final long sequence;
+        final BookRecord record;
+        final Map<String, Integer> frequencies = new HashMap<>();
+        final int length;
+
+        Change(long sequence, BookRecord record) {
+            this.sequence = sequence;
+            this.record = record;
+            List<String> terms = new ArrayList<>();
+            if (record != null) {
+                SearchIndex.documentTerms(record, terms);
+            }
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            this.length = terms.size();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.globalbooks.catalog.search;
+
+import com.globalbooks.catalog.generated.Book;
+import com.globalbooks.catalog.store.BookRecord;
+
+/**
+ * A book matching a search, with its BM25 relevance score.
+ */
+public class SearchHit {
+
+    private final BookRecord record;
+    private final float score;
+
+    SearchHit(BookRecord record, float score) {
+        this.record = record;
+        this.score = score;
+    }
+
+    public String getId() {
+        return record.getId();
+    }
+
+    public String getTitle() {
+        return record.getTitle();
+    }
+
+    public String getAuthor() {
+        return record.getAuthor();
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public Book toBook() {
+        return record.toBook();
+    }
+}
@@ -0,0 +1,322 @@
+package com.globalbooks.catalog.search;
+
+import com.globalbooks.catalog.store.BookRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable inverted index over book titles and authors, ranked with BM25.
+ *
+ * Each term's posting list is a single int[] in ascending doc order, one int per posting:
+ * the doc number in the high 24 bits and the doc's BM25 score for the term, quantized to
+ * 1..255 steps of the term's best score, in the low 8. Doc lengths and term weights are fixed
+ * once the index is built, so scores are computed at build time and a query only sums them.
+ * That is 4 bytes a posting and no object per posting or per doc, so millions of titles fit
+ * in a few compact arrays.
+ *
+ * Queries are disjunctive (any term may match) and evaluated document-at-a-time with
+ * MaxScore pruning. Terms are ordered by their best possible contribution. Once the top-k
+ * heap is full, terms whose combined best contribution cannot beat its weakest entry are only
+ * probed, by skipping, for docs found through the other terms. Each block of 64 postings
+ * also records its best score, so runs of docs that cannot beat the weakest entry are skipped
+ * a block at a time. Queries made of very common terms therefore touch few of their postings.
+ */
+final class SearchIndex {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+
+    private static final int MAX_DOCS = 1 << 24;
+    // Low 8 bits of a posting: the term frequency while building, the quantized score after
+    private static final int MAX_TF = 0xFF;
+    private static final int MAX_IMPACT = 0xFF;
+    // Postings per block for block-level score bounds
+    private static final int BLOCK_SHIFT = 6;
+
+    private final String[] bookIds;
+    private final Map<String, Postings> postings;
+    private final float averageLength;
+
+    private SearchIndex(String[] bookIds, Map<String, Postings> postings, float averageLength) {
+        this.bookIds = bookIds;
+        this.postings = postings;
+        this.averageLength = averageLength;
+    }
+
+    static SearchIndex build(Collection<BookRecord> records) {
+        int capacity = records.size();
+        if (capacity >= MAX_DOCS) {
+            throw new IllegalStateException("Search index holds at most " + MAX_DOCS + " books");
+        }
+        List<String> ids = new ArrayList<>(capacity);
+        int[] lengths = new int[capacity];
+        Map<String, IntList> lists = new HashMap<>();
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> terms = new ArrayList<>();
+        long totalLength = 0;
+
+        // Records can be added concurrently while we iterate; anything past capacity is left to the caller's delta
+        for (BookRecord record : records) {
+            int doc = ids.size();
+            if (doc == capacity) {
+                break;
+            }
+            ids.add(record.getId());
+            terms.clear();
+            documentTerms(record, terms);
+            frequencies.clear();
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                lists.computeIfAbsent(entry.getKey(), key -> new IntList())
+                        .add(doc << 8 | Math.min(entry.getValue(), MAX_TF));
+            }
+            lengths[doc] = terms.size();
+            totalLength += terms.size();
+        }
+
+        int docCount = ids.size();
+        float averageLength = docCount == 0 ? 1f : Math.max(1f, (float) totalLength / docCount);
+        // K1 * (1 - B + B * length / averageLength), the length part of each doc's BM25 denominator
+        float[] lengthNorms = new float[docCount];
+        for (int doc = 0; doc < docCount; doc++) {
+            lengthNorms[doc] = lengthNorm(lengths[doc], averageLength);
+        }
+        Map<String, Postings> postings = new HashMap<>(Math.max(16, lists.size() * 4 / 3 + 1));
+        for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+            int[] entries = entry.getValue().toArray();
+            float idf = idf(docCount, entries.length);
+            float maxScore = 0f;
+            for (int posting : entries) {
+                maxScore = Math.max(maxScore, termScore(idf, posting & MAX_TF, lengthNorms[posting >>> 8]));
+            }
+            // Swap each term frequency for the doc's quantized score, so queries never recompute BM25
+            float step = maxScore / MAX_IMPACT;
+            float[] blockMaxScores = new float[((entries.length - 1) >> BLOCK_SHIFT) + 1];
+            for (int i = 0; i < entries.length; i++) {
+                int posting = entries[i];
+                float score = termScore(idf, posting & MAX_TF, lengthNorms[posting >>> 8]);
+                int impact = Math.max(1, Math.round(score / step));
+                entries[i] = (posting & ~MAX_IMPACT) | impact;
+                blockMaxScores[i >> BLOCK_SHIFT] = Math.max(blockMaxScores[i >> BLOCK_SHIFT], impact * step);
+            }
+            postings.put(entry.getKey(), new Postings(entries, step, blockMaxScores));
+        }
+        return new SearchIndex(ids.toArray(new String[0]), postings, averageLength);
+    }
+
+    static void documentTerms(BookRecord record, List<String> terms) {
+        Tokenizer.tokenize(record.getTitle(), terms);
+        Tokenizer.tokenize(record.getAuthor(), terms);
+    }
+
+    static float termScore(float idf, int tf, float lengthNorm) {
+        return idf * tf * (K1 + 1) / (tf + lengthNorm);
+    }
+
+    static float lengthNorm(int length, float averageLength) {
+        return K1 * (1 - B + B * length / averageLength);
+    }
+
+    private static float idf(int docCount, int docFrequency) {
+        return (float) Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    int size() {
+        return bookIds.length;
+    }
+
+    String bookId(int doc) {
+        return bookIds[doc];
+    }
+
+    float averageLength() {
+        return averageLength;
+    }
+
+    // Weight of a term for scoring docs outside this index, using this index's statistics
+    float idf(String term) {
+        Postings list = postings.get(term);
+        return idf(bookIds.length, list != null ? list.entries.length : 0);
+    }
+
+    /**
+     * Offers every doc that scores above the heap's threshold and is not excluded. The
+     * exclusion check only runs for docs that would enter the heap.
+     */
+    void search(Collection<String> queryTerms, TopK top, IntPredicate excluded) {
+        List<Cursor> found = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                found.add(new Cursor(list));
+            }
+        }
+        int n = found.size();
+        if (n == 0) {
+            return;
+        }
+        Cursor[] cursors = found.toArray(new Cursor[0]);
+        Arrays.sort(cursors, (a, b) -> Float.compare(a.postings.maxScore, b.postings.maxScore));
+        // upTo[i] = best possible contribution of cursors 0..i together
+        float[] upTo = new float[n];
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            sum += cursors[i].postings.maxScore;
+            upTo[i] = sum;
+        }
+
+        float threshold = top.threshold();
+        int firstEssential = 0;
+        while (firstEssential < n && upTo[firstEssential] <= threshold) {
+            firstEssential++;
+        }
+        while (firstEssential < n) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                doc = Math.min(doc, cursors[i].doc());
+            }
+            if (doc == Integer.MAX_VALUE) {
+                return;
+            }
+            // Up to boundary, only the essential terms at doc can match, each within its current block
+            float bound = firstEssential > 0 ? upTo[firstEssential - 1] : 0f;
+            int boundary = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                Cursor cursor = cursors[i];
+                if (cursor.doc() == doc) {
+                    bound += cursor.blockMaxScore();
+                    boundary = Math.min(boundary, cursor.blockLastDoc() + 1);
+                } else {
+                    boundary = Math.min(boundary, cursor.doc());
+                }
+            }
+            if (bound <= threshold) {
+                for (int i = firstEssential; i < n; i++) {
+                    cursors[i].advance(boundary);
+                }
+                continue;
+            }
+            float score = 0f;
+            for (int i = firstEssential; i < n; i++) {
+                Cursor cursor = cursors[i];
+                if (cursor.doc() == doc) {
+                    score += cursor.score();
+                    cursor.next();
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0 && score + upTo[i] > threshold; i--) {
+                Cursor cursor = cursors[i];
+                if (cursor.advance(doc) == doc) {
+                    score += cursor.score();
+                }
+            }
+            if (score > threshold && !excluded.test(doc)) {
+                top.offer(score, doc);
+                threshold = top.threshold();
+                while (firstEssential < n && upTo[firstEssential] <= threshold) {
+                    firstEssential++;
+                }
+            }
+        }
+    }
+
+    private static final class Postings {
+        final int[] entries;
+        // Score of one impact unit
+        final float step;
+        // Highest score this term gives any doc
+        final float maxScore;
+        // Highest score this term gives a doc in each block of postings
+        final float[] blockMaxScores;
+
+        Postings(int[] entries, float step, float[] blockMaxScores) {
+            this.entries = entries;
+            this.step = step;
+            this.maxScore = MAX_IMPACT * step;
+            this.blockMaxScores = blockMaxScores;
+        }
+    }
+
+    private static final class Cursor {
+        final Postings postings;
+        final int[] entries;
+        int position;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+            this.entries = postings.entries;
+        }
+
+        int doc() {
+            return position < entries.length ? entries[position] >>> 8 : Integer.MAX_VALUE;
+        }
+
+        float score() {
+            return (entries[position] & MAX_IMPACT) * postings.step;
+        }
+
+        void next() {
+            position++;
+        }
+
+        float blockMaxScore() {
+            return postings.blockMaxScores[position >> BLOCK_SHIFT];
+        }
+
+        int blockLastDoc() {
+            int blockEnd = Math.min(((position >> BLOCK_SHIFT) + 1) << BLOCK_SHIFT, entries.length);
+            return entries[blockEnd - 1] >>> 8;
+        }
+
+        // Moves to the first posting at or after target, galloping then binary searching
+        int advance(int target) {
+            if (doc() >= target) {
+                return doc();
+            }
+            int step = 1;
+            int low = position;
+            int high = position + 1;
+            while (high < entries.length && (entries[high] >>> 8) < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            high = Math.min(high, entries.length);
+            // entries[low] < target; first match lies in (low, high]
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if ((entries[middle] >>> 8) < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            position = high;
+            return doc();
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.globalbooks.catalog.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into search terms: runs of letters and digits, lower-cased, with accents removed
+ * so "Mockingbird" matches "mockingbird" and "Bront\u00eb" matches "bronte". ASCII text, the common
+ * case, never goes through {@link Normalizer}.
+ */
+final class Tokenizer {
+
+    // Longer runs (URLs, ISBN-like noise) are cut here rather than indexed whole
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, terms);
+        return terms;
+    }
+
+    static void tokenize(String text, List<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int start = -1;
+        boolean ascii = true;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            // Combining accents stay inside the term, for text that is not precomposed
+            if (Character.isLetterOrDigit(c) || (start >= 0 && Character.getType(c) == Character.NON_SPACING_MARK)) {
+                if (start < 0) {
+                    start = i;
+                    ascii = true;
+                }
+                ascii &= c < 128;
+            } else if (start >= 0) {
+                String term = text.substring(start, Math.min(i, start + MAX_TERM_LENGTH));
+                terms.add(ascii ? term.toLowerCase(Locale.ROOT) : fold(term));
+                start = -1;
+            }
+        }
+    }
+
+    private static String fold(String term) {
+        String decomposed = Normalizer.normalize(term, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
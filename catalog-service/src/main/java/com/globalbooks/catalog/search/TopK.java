@@ -0,0 +1,95 @@
+package com.globalbooks.catalog.search;
+
+/**
+ * The k best (score, doc) pairs seen so far, in a min-heap over two primitive arrays so
+ * scoring a candidate allocates nothing. The root is the weakest entry; its score is the
+ * threshold a new candidate has to beat.
+ */
+final class TopK {
+
+    private final float[] scores;
+    private final int[] docs;
+    private int size;
+
+    TopK(int k) {
+        this.scores = new float[k];
+        this.docs = new int[k];
+    }
+
+    // Score a candidate must exceed to enter; 0 until the heap is full (all BM25 scores are positive)
+    float threshold() {
+        return size < scores.length ? 0f : scores[0];
+    }
+
+    void offer(float score, int doc) {
+        if (size < scores.length) {
+            scores[size] = score;
+            docs[size] = doc;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            docs[0] = doc;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empties the heap into docs and scores ordered best first (ties by lower doc). Returns the count.
+     */
+    int drainBestFirst(int[] docsOut, float[] scoresOut) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            docsOut[i] = docs[0];
+            scoresOut[i] = scores[0];
+            size--;
+            scores[0] = scores[size];
+            docs[0] = docs[size];
+            siftDown(0);
+        }
+        return count;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!weaker(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int weakest = left + 1 < size && weaker(left + 1, left) ? left + 1 : left;
+            if (!weaker(weakest, i)) {
+                return;
+            }
+            swap(i, weakest);
+            i = weakest;
+        }
+    }
+
+    // Lower score is weaker; on equal scores the higher doc is weaker, so results are stable
+    private boolean weaker(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && docs[a] > docs[b]);
+    }
+
+    private void swap(int a, int b) {
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int doc = docs[a];
+        docs[a] = docs[b];
+        docs[b] = doc;
+    }
+}
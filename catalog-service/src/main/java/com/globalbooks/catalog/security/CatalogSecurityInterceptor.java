@@ -1,42 +1,27 @@
 package com.globalbooks.catalog.security;
 
-import org.springframework.ws.soap.security.wss4j2.Wss4jSecurityInterceptor;
-import org.springframework.ws.soap.security.wss4j2.callback.SimplePasswordValidationCallbackHandler;
-
-import java.util.HashMap;
-import java.util.Map;
+import com.globalbooks.common.security.CredentialStore;
+import com.globalbooks.common.security.UsernameTokenInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 /**
- * WS-Security interceptor for SOAP endpoints only.
- * Validates Username Token authentication for SOAP requests.
- * 
+ * WS-Security UsernameToken check for Catalog SOAP endpoints only.
+ *
  * IMPORTANT: This interceptor ONLY affects SOAP endpoints (/ws/*).
  * REST endpoints (/api/*) are completely unaffected.
  */
-public class CatalogSecurityInterceptor extends Wss4jSecurityInterceptor {
-    
-    private static final String SOAP_USERNAME = "catalog-client";
-    private static final String SOAP_PASSWORD = "catalog-secure-2024";
-    
-    public CatalogSecurityInterceptor() {
-        super();
-        configureValidation();
-    }
-    
-    private void configureValidation() {
-        // Set validation actions - require Username Token
-        setValidationActions("UsernameToken");
-        
-        // Configure password callback handler for validation
-        SimplePasswordValidationCallbackHandler callbackHandler = 
-            new SimplePasswordValidationCallbackHandler();
-        callbackHandler.setUsersMap(createUsersMap());
-        setValidationCallbackHandler(callbackHandler);
-    }
-    
-    private Map<String, String> createUsersMap() {
-        Map<String, String> users = new HashMap<>();
-        users.put(SOAP_USERNAME, SOAP_PASSWORD);
-        return users;
+@Component
+public class CatalogSecurityInterceptor extends UsernameTokenInterceptor {
+
+    public CatalogSecurityInterceptor(CredentialStore credentialStore,
+                                      @Value("${ws.security.token-ttl-seconds:300}") long tokenTtlSeconds,
+                                      @Value("${ws.security.future-skew-seconds:60}") long futureSkewSeconds,
+                                      @Value("${ws.security.require-nonce:false}") boolean requireNonce,
+                                      @Value("${ws.security.replay-cache.max-entries:200000}") int replayCacheMaxEntries,
+                                      @Value("${ws.security.principal-cache.ttl-seconds:300}") long principalTtlSeconds,
+                                      @Value("${ws.security.principal-cache.max-entries:1000}") int principalCacheMaxEntries) {
+        super(credentialStore, tokenTtlSeconds, futureSkewSeconds, requireNonce, replayCacheMaxEntries,
+                principalTtlSeconds, principalCacheMaxEntries);
     }
 }
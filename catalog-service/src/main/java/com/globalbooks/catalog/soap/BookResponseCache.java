@@ -0,0 +1,132 @@
+package com.globalbooks.catalog.soap;
+
+import com.globalbooks.catalog.BookRepository;
+import com.globalbooks.catalog.generated.Book;
+import com.globalbooks.catalog.store.BookRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Builds SOAP book responses from pre-serialized {@code <book>} fragments, one per book id.
+ * A fragment is marshalled on first use and reused until the book is saved or deleted, so
+ * lookups of hot books only copy bytes. The cache holds at most max-entries fragments; Caffeine
+ * evicts the least valuable ones a few at a time, so hot books stay cached when it is full.
+ *
+ * Each fragment remembers the record it was built from and is only served while that record
+ * is still the one in the repository. A fragment built by a reader that raced with a write
+ * can therefore never be served after the write; the change listener only frees the memory.
+ */
+@Component
+public class BookResponseCache {
+
+    private static final String NAMESPACE_URI = "http://globalbooks.com/catalog";
+    private static final QName BOOK = new QName(NAMESPACE_URI, "book");
+    private static final QName MISSING_ID = new QName(NAMESPACE_URI, "missingId");
+
+    private final BookRepository bookRepository;
+    private final SoapPayloadCodec codec;
+    private final Cache<String, Fragment> fragments;
+
+    public BookResponseCache(BookRepository bookRepository, SoapPayloadCodec codec,
+                             @Value("${catalog.soap.response-cache.max-entries:10000}") int maxEntries) {
+        this.bookRepository = bookRepository;
+        this.codec = codec;
+        this.fragments = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        bookRepository.addChangeListener(fragments::invalidate);
+        bookRepository.addReloadListener(fragments::invalidateAll);
+    }
+
+    public Source bookDetails(String id) {
+        ByteArrayOutputStream out = open("getBookDetailsResponse");
+        byte[] book = fragment(id);
+        if (book != null) {
+            out.write(book, 0, book.length);
+        }
+        return close(out, "getBookDetailsResponse");
+    }
+
+    // Found books in request order, then one missingId per unknown id, as books.xsd orders them
+    public Source booksDetails(Collection<String> ids) {
+        ByteArrayOutputStream out = open("getBooksDetailsResponse");
+        ByteArrayOutputStream missingIds = null;
+        for (String id : ids) {
+            byte[] book = fragment(id);
+            if (book != null) {
+                out.write(book, 0, book.length);
+            } else {
+                if (missingIds == null) {
+                    missingIds = new ByteArrayOutputStream();
+                }
+                byte[] element = codec.writeFragment(new JAXBElement<>(MISSING_ID, String.class, id));
+                missingIds.write(element, 0, element.length);
+            }
+        }
+        if (missingIds != null) {
+            byte[] bytes = missingIds.toByteArray();
+            out.write(bytes, 0, bytes.length);
+        }
+        return close(out, "getBooksDetailsResponse");
+    }
+
+    // Ranked search results; a book deleted since the search ran is left out
+    public Source searchResults(Collection<String> ids) {
+        ByteArrayOutputStream out = open("searchBooksResponse");
+        for (String id : ids) {
+            byte[] book = fragment(id);
+            if (book != null) {
+                out.write(book, 0, book.length);
+            }
+        }
+        return close(out, "searchBooksResponse");
+    }
+
+    private byte[] fragment(String id) {
+        BookRecord record = bookRepository.findRecordById(id);
+        if (record == null) {
+            return null;
+        }
+        Fragment cached = fragments.getIfPresent(id);
+        if (cached != null && cached.record == record) {
+            return cached.bytes;
+        }
+        byte[] bytes = codec.writeFragment(new JAXBElement<>(BOOK, Book.class, record.toBook()));
+        fragments.put(id, new Fragment(record, bytes));
+        return bytes;
+    }
+
+    private static ByteArrayOutputStream open(String element) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        byte[] start = ("<tns:" + element + " xmlns:tns=\"" + NAMESPACE_URI + "\">").getBytes(StandardCharsets.UTF_8);
+        out.write(start, 0, start.length);
+        return out;
+    }
+
+    private static Source close(ByteArrayOutputStream out, String element) {
+        byte[] end = ("</tns:" + element + ">").getBytes(StandardCharsets.UTF_8);
+        out.write(end, 0, end.length);
+        return new StreamSource(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static final class Fragment {
+        final BookRecord record;
+        final byte[] bytes;
+
+        Fragment(BookRecord record, byte[] bytes) {
+            this.record = record;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.globalbooks.catalog.soap;
+
+import org.springframework.ws.soap.server.endpoint.annotation.FaultCode;
+import org.springframework.ws.soap.server.endpoint.annotation.SoapFault;
+
+/**
+ * A SOAP request payload that could not be bound, failed schema validation or exceeds a request
+ * limit; reported to the caller as a Client fault.
+ */
+@SoapFault(faultCode = FaultCode.CLIENT)
+public class InvalidSoapRequestException extends RuntimeException {
+
+    public InvalidSoapRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidSoapRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,100 @@
+package com.globalbooks.catalog.soap;
+
+import com.globalbooks.catalog.generated.ObjectFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Binds SOAP payloads to the classes generated from books.xsd. The JAXBContext is built once;
+ * marshallers and unmarshallers, which are not thread-safe, are pooled. When request
+ * validation is enabled, unmarshallers check input against the precompiled schema while they
+ * read it, so no second pass is needed.
+ */
+@Component
+public class SoapPayloadCodec {
+
+    private final JAXBContext context;
+    private final Schema requestSchema;
+    private final BlockingQueue<Marshaller> marshallers;
+    private final BlockingQueue<Unmarshaller> unmarshallers;
+
+    public SoapPayloadCodec(@Qualifier("booksValidationSchema") Schema booksValidationSchema,
+                            @Value("${catalog.soap.validate-requests:false}") boolean validateRequests,
+                            @Value("${catalog.soap.pool.max-idle:32}") int maxIdle) throws JAXBException {
+        this.context = JAXBContext.newInstance(ObjectFactory.class);
+        this.requestSchema = validateRequests ? booksValidationSchema : null;
+        this.marshallers = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+        this.unmarshallers = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * Reads a request payload.
+     *
+     * @throws InvalidSoapRequestException if the payload does not bind, or fails validation
+     */
+    public <T> T read(Source payload, Class<T> type) {
+        Unmarshaller unmarshaller = null;
+        try {
+            unmarshaller = borrowUnmarshaller();
+            return unmarshaller.unmarshal(payload, type).getValue();
+        } catch (JAXBException e) {
+            String detail = e.getLinkedException() != null ? e.getLinkedException().getMessage() : e.getMessage();
+            throw new InvalidSoapRequestException("Invalid " + type.getSimpleName() + ": " + detail, e);
+        } finally {
+            if (unmarshaller != null) {
+                unmarshallers.offer(unmarshaller);
+            }
+        }
+    }
+
+    /**
+     * Serializes a bound object (a root element or a JAXBElement) to UTF-8, without an XML
+     * declaration, so the bytes can be embedded in a larger payload.
+     */
+    public byte[] writeFragment(Object element) {
+        Marshaller marshaller = null;
+        try {
+            marshaller = borrowMarshaller();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            marshaller.marshal(element, out);
+            return out.toByteArray();
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Could not serialize " + element.getClass().getSimpleName(), e);
+        } finally {
+            if (marshaller != null) {
+                marshallers.offer(marshaller);
+            }
+        }
+    }
+
+    private Marshaller borrowMarshaller() throws JAXBException {
+        Marshaller marshaller = marshallers.poll();
+        if (marshaller == null) {
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+        }
+        return marshaller;
+    }
+
+    private Unmarshaller borrowUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        if (unmarshaller == null) {
+            unmarshaller = context.createUnmarshaller();
+            unmarshaller.setSchema(requestSchema);
+        }
+        return unmarshaller;
+    }
+}
@@ -0,0 +1,64 @@
+package com.globalbooks.catalog.store;
+
+import com.globalbooks.catalog.generated.Book;
+
+/**
+ * Immutable, compact representation of a catalog entry.
+ * The generated JAXB {@link Book} is mutable, so the store keeps these
+ * records and only materializes a {@link Book} when a caller asks for one.
+ * The version and modification time are assigned by {@link CatalogIndex} when it stores the record.
+ */
+public final class BookRecord {
+
+    private final String id;
+    private final String title;
+    private final String author;
+    private final long version;
+    private final long modifiedAt;
+
+    public BookRecord(String id, String title, String author) {
+        this(id, title, author, 0, 0);
+    }
+
+    public BookRecord(String id, String title, String author, long version, long modifiedAt) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.version = version;
+        this.modifiedAt = modifiedAt;
+    }
+
+    public static BookRecord from(Book book) {
+        return new BookRecord(book.getId(), book.getTitle(), book.getAuthor());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    // Unique across the catalog: every stored write gets a higher version than any before it
+    public long getVersion() {
+        return version;
+    }
+
+    // Epoch millis of the write that stored this record
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public Book toBook() {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,219 @@
+package com.globalbooks.catalog.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent in-memory catalog store with secondary indexes on author and title prefix.
+ *
+ * Reads are lock-free. Writes are serialized per book id through
+ * {@link ConcurrentHashMap#compute}, so updates to different books never contend
+ * and the secondary indexes are always maintained together with the primary entry.
+ * Author names are pooled so the many books sharing an author share one string.
+ *
+ * Each stored record is stamped with a new version. {@link #version()} counts completed
+ * changes, so it only moves once a change is visible to readers: a client that saw no change in
+ * it has not missed one.
+ */
+public class CatalogIndex {
+
+    // Separates the normalized title from the id in title index keys; sorts before any printable char
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ConcurrentHashMap<String, BookRecord> byId;
+    private final ConcurrentHashMap<String, Set<String>> byAuthor;
+    private final ConcurrentSkipListMap<String, String> byTitle;
+    private final ConcurrentHashMap<String, String> authorPool;
+    // Shared with the indexes that replace this one, so versions stay unique across a reload
+    final AtomicLong recordVersions;
+    private final AtomicLong completedChanges = new AtomicLong();
+
+    public CatalogIndex(int expectedSize) {
+        this(new AtomicLong(), new ConcurrentHashMap<>(Math.max(16, expectedSize)),
+                new ConcurrentHashMap<>(Math.max(16, expectedSize / 8)), new ConcurrentSkipListMap<>(),
+                new ConcurrentHashMap<>(Math.max(16, expectedSize / 8)));
+    }
+
+    // Fully built structures, from a CatalogLoader
+    CatalogIndex(AtomicLong recordVersions, ConcurrentHashMap<String, BookRecord> byId,
+                 ConcurrentHashMap<String, Set<String>> byAuthor, ConcurrentSkipListMap<String, String> byTitle,
+                 ConcurrentHashMap<String, String> authorPool) {
+        this.recordVersions = recordVersions;
+        this.byId = byId;
+        this.byAuthor = byAuthor;
+        this.byTitle = byTitle;
+        this.authorPool = authorPool;
+    }
+
+    public BookRecord get(String id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * Inserts or replaces a record and returns the previous one, if any.
+     */
+    public BookRecord put(BookRecord record) {
+        if (record == null || record.getId() == null) {
+            throw new IllegalArgumentException("Book id is required");
+        }
+        String author = pool(record.getAuthor());
+        BookRecord[] previous = new BookRecord[1];
+        byId.compute(record.getId(), (id, existing) -> {
+            // Stamped under the per-id lock, so versions of one book increase in write order
+            BookRecord stored = new BookRecord(id, record.getTitle(), author,
+                    recordVersions.incrementAndGet(), System.currentTimeMillis());
+            previous[0] = existing;
+            if (existing != null) {
+                unindex(existing);
+            }
+            index(stored);
+            return stored;
+        });
+        completedChanges.incrementAndGet();
+        return previous[0];
+    }
+
+    public BookRecord remove(String id) {
+        if (id == null) {
+            return null;
+        }
+        BookRecord[] removed = new BookRecord[1];
+        byId.computeIfPresent(id, (key, existing) -> {
+            removed[0] = existing;
+            unindex(existing);
+            return null;
+        });
+        if (removed[0] != null) {
+            completedChanges.incrementAndGet();
+        }
+        return removed[0];
+    }
+
+    public List<BookRecord> findByAuthor(String author) {
+        String key = normalize(author);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> ids = byAuthor.get(key);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<BookRecord> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            BookRecord record = byId.get(id);
+            // Skip entries caught mid-update by a concurrent writer
+            if (record != null && key.equals(normalize(record.getAuthor()))) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to {@code limit} books whose normalized title starts with the prefix, in title order.
+     */
+    public List<BookRecord> findByTitlePrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ConcurrentNavigableMap<String, String> range = byTitle.tailMap(key, true);
+        List<BookRecord> result = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<String, String> entry : range.entrySet()) {
+            if (!entry.getKey().startsWith(key)) {
+                break;
+            }
+            BookRecord record = byId.get(entry.getValue());
+            if (record != null && titleKey(record).equals(entry.getKey())) {
+                result.add(record);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // Live, read-only view of every record; iteration sees concurrent writes or not, never fails
+    public Collection<BookRecord> records() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    public long version() {
+        return completedChanges.get();
+    }
+
+    // Makes this index's catalog version follow predecessor's: replacing it counts as one more change
+    public void continueAfter(CatalogIndex predecessor) {
+        completedChanges.set(predecessor.version() + 1);
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private void index(BookRecord record) {
+        String authorKey = normalize(record.getAuthor());
+        if (!authorKey.isEmpty()) {
+            byAuthor.compute(authorKey, (key, ids) -> {
+                Set<String> target = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                target.add(record.getId());
+                return target;
+            });
+        }
+        byTitle.put(titleKey(record), record.getId());
+    }
+
+    private void unindex(BookRecord record) {
+        String authorKey = normalize(record.getAuthor());
+        if (!authorKey.isEmpty()) {
+            byAuthor.computeIfPresent(authorKey, (key, ids) -> {
+                ids.remove(record.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        byTitle.remove(titleKey(record));
+    }
+
+    static String titleKey(BookRecord record) {
+        return normalize(record.getTitle()) + KEY_SEPARATOR + record.getId();
+    }
+
+    private String pool(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = authorPool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
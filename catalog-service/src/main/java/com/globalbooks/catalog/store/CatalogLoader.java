@@ -0,0 +1,95 @@
+package com.globalbooks.catalog.store;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Fills a fresh {@link CatalogIndex} for a bulk reload. Any number of threads add records
+ * concurrently; {@link #build()} then creates the secondary indexes in one pass.
+ *
+ * Records are stamped from a block of versions reserved up front, so feed record n gets
+ * version first + n and the shared version counter is touched once per load. A book whose
+ * title and author match the predecessor's keeps its previous version and modification time,
+ * so its ETag and Last-Modified survive a reload that did not change it.
+ */
+public final class CatalogLoader {
+
+    // Versions reserved per load; feeds hold far fewer records than this
+    private static final long VERSION_BLOCK = 1L << 32;
+    // Below this many books, building the author index in parallel is not worth it
+    private static final long PARALLELISM_THRESHOLD = 10_000;
+
+    private final CatalogIndex predecessor;
+    private final long firstVersion;
+    private final long loadedAt = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, BookRecord> byId;
+    private final ConcurrentHashMap<String, String> authorPool;
+
+    public CatalogLoader(int expectedSize, CatalogIndex predecessor) {
+        this.predecessor = predecessor;
+        this.firstVersion = predecessor.recordVersions.getAndAdd(VERSION_BLOCK) + 1;
+        this.byId = new ConcurrentHashMap<>(Math.max(16, expectedSize));
+        this.authorPool = new ConcurrentHashMap<>(Math.max(16, expectedSize / 8));
+    }
+
+    /**
+     * Adds the record at position ordinal of the feed. Of several records with one id, the
+     * one at the highest position wins, whichever thread adds it last.
+     */
+    public void add(long ordinal, BookRecord record) {
+        if (record.getId() == null || ordinal < 0 || ordinal >= VERSION_BLOCK) {
+            throw new IllegalArgumentException("Book id and a feed position are required");
+        }
+        BookRecord stamped = new BookRecord(record.getId(), record.getTitle(), pool(record.getAuthor()),
+                firstVersion + ordinal, loadedAt);
+        byId.merge(stamped.getId(), stamped,
+                (existing, added) -> added.getVersion() > existing.getVersion() ? added : existing);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Builds the index from every record added so far. Call it after the last add has returned.
+     */
+    public CatalogIndex build() {
+        byId.replaceAll((id, record) -> unchangedOrSelf(record));
+        ConcurrentHashMap<String, Set<String>> byAuthor = new ConcurrentHashMap<>(Math.max(16, authorPool.size()));
+        // Authors are pooled, so each distinct name is normalized once
+        ConcurrentHashMap<String, String> authorKeys = new ConcurrentHashMap<>(Math.max(16, authorPool.size()));
+        byId.forEachValue(PARALLELISM_THRESHOLD, record -> {
+            String author = record.getAuthor();
+            String authorKey = author != null ? authorKeys.computeIfAbsent(author, CatalogIndex::normalize) : "";
+            if (!authorKey.isEmpty()) {
+                byAuthor.computeIfAbsent(authorKey, key -> ConcurrentHashMap.newKeySet(4)).add(record.getId());
+            }
+        });
+        ConcurrentSkipListMap<String, String> byTitle = new ConcurrentSkipListMap<>();
+        for (BookRecord record : byId.values()) {
+            byTitle.put(CatalogIndex.titleKey(record), record.getId());
+        }
+        return new CatalogIndex(predecessor.recordVersions, byId, byAuthor, byTitle, authorPool);
+    }
+
+    private BookRecord unchangedOrSelf(BookRecord record) {
+        BookRecord previous = predecessor.get(record.getId());
+        if (previous != null && Objects.equals(previous.getTitle(), record.getTitle())
+                && Objects.equals(previous.getAuthor(), record.getAuthor())) {
+            // This loader's pooled author, the predecessor's stamps
+            return new BookRecord(record.getId(), record.getTitle(), record.getAuthor(),
+                    previous.getVersion(), previous.getModifiedAt());
+        }
+        return record;
+    }
+
+    private String pool(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = authorPool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
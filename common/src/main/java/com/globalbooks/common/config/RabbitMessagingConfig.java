@@ -0,0 +1,56 @@
+package com.globalbooks.common.config;
+
+import com.globalbooks.common.messaging.BatchListenerFactories;
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * RabbitMQ beans every messaging service shares: the {@link ConfirmedBatchPublisher}, tuned by
+ * rabbit.publisher.*, and {@link BatchListenerFactories} for the services' per-queue listener
+ * factories. The publisher serializes with the service's own MessageConverter bean.
+ */
+@AutoConfiguration(after = RabbitAutoConfiguration.class)
+@ConditionalOnClass(RabbitTemplate.class)
+@ConditionalOnBean(RabbitTemplate.class)
+public class RabbitMessagingConfig {
+
+    // Outbound publishing: batched per queue, each message held until the broker confirms it
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    public ConfirmedBatchPublisher confirmedBatchPublisher(
+            RabbitTemplate rabbitTemplate,
+            MessageConverter messageConverter,
+            @Value("${rabbit.publisher.batch-size:100}") int batchSize,
+            @Value("${rabbit.publisher.linger-ms:5}") long lingerMs,
+            @Value("${rabbit.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+            @Value("${rabbit.publisher.max-attempts:3}") int maxAttempts,
+            @Value("${rabbit.publisher.retry-backoff-ms:200}") long retryBackoffMs,
+            @Value("${rabbit.publisher.threads:2}") int threads) {
+        return new ConfirmedBatchPublisher(rabbitTemplate, messageConverter, batchSize, lingerMs,
+                confirmTimeoutMs, maxAttempts, retryBackoffMs, threads);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchListenerFactories batchListenerFactories(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ObjectProvider<ContainerCustomizer<SimpleMessageListenerContainer>> containerCustomizer,
+            Environment environment) {
+        return new BatchListenerFactories(configurer, connectionFactory, containerCustomizer, environment);
+    }
+}
@@ -0,0 +1,77 @@
+package com.globalbooks.common.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in virtual-thread mode, enabled with globalbooks.threads.virtual=true on a Java 21+ runtime.
+ * Covers Tomcat request handling in every service, and the RabbitMQ listener consumers in the
+ * services that have them. Services use {@link #virtualThreadFactory} for their own pools.
+ *
+ * The build still targets Java 8, so virtual threads are created reflectively.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "globalbooks.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.apache.coyote.ProtocolHandler")
+    static class Tomcat {
+
+        @Bean
+        public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+            logger.info("Serving HTTP requests on virtual threads");
+            ExecutorService executor = newVirtualThreadExecutor("http-vt-");
+            return protocolHandler -> protocolHandler.setExecutor(executor);
+        }
+    }
+
+    // Listener containers hand each consumer to a virtual thread instead of a platform thread
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer")
+    static class Rabbit {
+
+        @Bean
+        public ContainerCustomizer<SimpleMessageListenerContainer> virtualThreadContainerCustomizer() {
+            logger.info("Running RabbitMQ listener consumers on virtual threads");
+            ExecutorService executor = newVirtualThreadExecutor("rabbit-vt-");
+            return container -> container.setTaskExecutor(executor);
+        }
+    }
+
+    public static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("globalbooks.threads.virtual=true requires a Java 21+ runtime, found "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+
+    public static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        ThreadFactory threadFactory = virtualThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.globalbooks.common.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of fixed-width records, memory-mapped in chunks that are added as it grows.
+ * Records live off-heap in the page cache and survive a process restart; only the
+ * header's record count decides which slots are valid, so a slot is written first and
+ * then made visible with {@link #setCount(int)}.
+ *
+ * Not synchronized: callers hold a read lock for reads and a write lock for writes.
+ */
+public class MappedSlotFile implements Closeable {
+
+    private static final int MAGIC = 0x4C444752; // "LDGR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 12;
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final int slotSize;
+    private final int slotsPerChunk;
+    private int count;
+
+    public MappedSlotFile(Path file, int slotSize) throws IOException {
+        this.slotSize = slotSize;
+        this.slotsPerChunk = Math.max(1, CHUNK_BYTES / slotSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (created) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slotSize).putInt(COUNT_OFFSET, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != slotSize) {
+            channel.close();
+            throw new IOException("Unrecognised ledger file " + file);
+        }
+        this.count = header.getInt(COUNT_OFFSET);
+        ensureCapacity(count);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Makes slots [0, count) visible; slots at or past the old count must already be written
+    public void setCount(int count) throws IOException {
+        ensureCapacity(count);
+        header.putInt(COUNT_OFFSET, count);
+        this.count = count;
+    }
+
+    public void ensureCapacity(int slots) throws IOException {
+        int needed = slots == 0 ? 1 : (slots + slotsPerChunk - 1) / slotsPerChunk;
+        while (chunks.size() < needed) {
+            long offset = HEADER_SIZE + (long) chunks.size() * slotsPerChunk * slotSize;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) slotsPerChunk * slotSize));
+        }
+    }
+
+    public long getLong(int slot, int field) {
+        return chunk(slot).getLong(position(slot, field));
+    }
+
+    public int getInt(int slot, int field) {
+        return chunk(slot).getInt(position(slot, field));
+    }
+
+    public void putLong(int slot, int field, long value) {
+        chunk(slot).putLong(position(slot, field), value);
+    }
+
+    public void putInt(int slot, int field, int value) {
+        chunk(slot).putInt(position(slot, field), value);
+    }
+
+    // Flushes dirty pages to disk; without it data still survives a process crash, not a power loss
+    public void force() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(int slot) {
+        return chunks.get(slot / slotsPerChunk);
+    }
+
+    private int position(int slot, int field) {
+        return (slot % slotsPerChunk) * slotSize + field;
+    }
+}
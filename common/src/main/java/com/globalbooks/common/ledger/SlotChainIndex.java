@@ -0,0 +1,39 @@
+package com.globalbooks.common.ledger;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Non-unique index from a long key to ledger slots. The newest slot per key sits in a
+ * {@link LongIntHashMap}; each slot points at the previous slot with the same key through a
+ * parallel int array, so the whole index is three primitive arrays. Not thread-safe.
+ */
+public class SlotChainIndex {
+
+    private final LongIntHashMap heads;
+    private int[] next;
+
+    public SlotChainIndex(int expected) {
+        this.heads = new LongIntHashMap(expected);
+        this.next = new int[Math.max(16, expected)];
+    }
+
+    // Each slot may be added once; to move a slot to another key, clear and rebuild
+    public void add(long key, int slot) {
+        if (slot >= next.length) {
+            next = Arrays.copyOf(next, Math.max(slot + 1, next.length << 1));
+        }
+        next[slot] = heads.put(key, slot);
+    }
+
+    // Visits the slots for key, newest first
+    public void forEach(long key, IntConsumer action) {
+        for (int slot = heads.get(key); slot != LongIntHashMap.MISSING; slot = next[slot]) {
+            action.accept(slot);
+        }
+    }
+
+    public void clear() {
+        heads.clear();
+    }
+}
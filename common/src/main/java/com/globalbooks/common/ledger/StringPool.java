@@ -0,0 +1,100 @@
+package com.globalbooks.common.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file of length-prefixed UTF-8 strings, referenced from ledger slots by offset.
+ * Values from a small fixed vocabulary (statuses) are interned so each is stored once;
+ * free text (addresses) is appended as is and never held on the heap.
+ */
+public class StringPool implements Closeable {
+
+    public static final long NULL_REF = -1L;
+
+    private final FileChannel channel;
+    private final Map<String, Long> interned = new ConcurrentHashMap<>();
+    private long end;
+
+    public StringPool(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Bytes past the last referenced string (from a crash mid-append) are simply never read
+        this.end = channel.size();
+    }
+
+    public long intern(String value) throws IOException {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Long ref = interned.get(value);
+        if (ref != null) {
+            return ref;
+        }
+        synchronized (this) {
+            ref = interned.get(value);
+            if (ref == null) {
+                ref = append(value);
+                interned.put(value, ref);
+            }
+            return ref;
+        }
+    }
+
+    // Re-registers an interned value found in existing records, so intern() keeps reusing it
+    public void register(String value, long ref) {
+        if (value != null && ref != NULL_REF) {
+            interned.putIfAbsent(value, ref);
+        }
+    }
+
+    public synchronized long append(String value) throws IOException {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes).flip();
+        long ref = end;
+        while (buffer.hasRemaining()) {
+            end += channel.write(buffer, end);
+        }
+        return ref;
+    }
+
+    public String get(long ref) throws IOException {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, ref);
+        ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+        readFully(bytes, ref + 4);
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("String reference " + position + " is past the end of the pool");
+            }
+        }
+    }
+}
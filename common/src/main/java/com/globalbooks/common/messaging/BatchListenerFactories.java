@@ -0,0 +1,56 @@
+package com.globalbooks.common.messaging;
+
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.core.env.Environment;
+
+/**
+ * Builds listener container factories whose listeners receive up to batch-size messages as one
+ * List. A partial batch is delivered once no new message arrives within
+ * rabbit.listener.batch-receive-timeout-ms. Each queue is tuned on its own through
+ * rabbit.listener.&lt;queue&gt;.concurrency, max-concurrency, prefetch and batch-size.
+ * Acknowledge mode and the rest come from spring.rabbitmq.listener.simple, applied by the Boot configurer.
+ */
+public class BatchListenerFactories {
+
+    private final SimpleRabbitListenerContainerFactoryConfigurer configurer;
+    private final ConnectionFactory connectionFactory;
+    private final ObjectProvider<ContainerCustomizer<SimpleMessageListenerContainer>> containerCustomizer;
+    private final Environment environment;
+
+    public BatchListenerFactories(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                  ConnectionFactory connectionFactory,
+                                  ObjectProvider<ContainerCustomizer<SimpleMessageListenerContainer>> containerCustomizer,
+                                  Environment environment) {
+        this.configurer = configurer;
+        this.connectionFactory = connectionFactory;
+        this.containerCustomizer = containerCustomizer;
+        this.environment = environment;
+    }
+
+    // queue is the property segment, e.g. "payment-queue"; the defaults apply when it sets none
+    public SimpleRabbitListenerContainerFactory create(String queue, int defaultPrefetch, int defaultBatchSize) {
+        String prefix = "rabbit.listener." + queue + ".";
+        int concurrency = environment.getProperty(prefix + "concurrency", Integer.class, 1);
+        int maxConcurrency = environment.getProperty(prefix + "max-concurrency", Integer.class, 4);
+        int prefetch = environment.getProperty(prefix + "prefetch", Integer.class, defaultPrefetch);
+        int batchSize = environment.getProperty(prefix + "batch-size", Integer.class, defaultBatchSize);
+        long batchReceiveTimeoutMs = environment.getProperty("rabbit.listener.batch-receive-timeout-ms", Long.class, 50L);
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchReceiveTimeoutMs);
+        containerCustomizer.ifAvailable(factory::setContainerCustomizer);
+        return factory;
+    }
+}
@@ -0,0 +1,284 @@
+package com.globalbooks.common.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes to the default exchange in batches, one buffer per routing key. A buffer is sent
+ * once it holds batchSize messages or lingerMs after its first message, whichever comes first.
+ * Every message carries its own CorrelationData; the returned future completes only once the
+ * broker has acked it. Nacked, returned or unconfirmed messages are re-sent up to maxAttempts
+ * times before the future fails. Messages sent with {@link #publishUntilConfirmed} are not
+ * given up on: they keep being re-sent until confirmed or until the publisher shuts down.
+ *
+ * Each message gets a unique message id when it is published, and a re-send keeps that id,
+ * so consumers can recognise a duplicate delivery of a message they have already handled.
+ */
+public class ConfirmedBatchPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfirmedBatchPublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final int batchSize;
+    private final long lingerMs;
+    private final long confirmTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final Map<String, List<Pending>> buffers = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+
+    // Random per instance, so ids stay unique across restarts and publishers
+    private final String messageIdPrefix = Long.toHexString(UUID.randomUUID().getMostSignificantBits()) + "-";
+    private final AtomicLong messageSequence = new AtomicLong();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean stopped;
+
+    public ConfirmedBatchPublisher(RabbitTemplate rabbitTemplate, MessageConverter messageConverter,
+                                   int batchSize, long lingerMs, long confirmTimeoutMs,
+                                   int maxAttempts, long retryBackoffMs, int threads) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMs = lingerMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+
+        CustomizableThreadFactory schedulerThreads = new CustomizableThreadFactory("amqp-linger-");
+        schedulerThreads.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(schedulerThreads);
+        CustomizableThreadFactory senderThreads = new CustomizableThreadFactory("amqp-publisher-");
+        senderThreads.setDaemon(true);
+        this.senders = Executors.newFixedThreadPool(Math.max(1, threads), senderThreads);
+    }
+
+    /**
+     * Queues the payload for routingKey. It is serialized here, on the caller's thread, so the
+     * sender threads only write bytes and wait for confirms.
+     */
+    public CompletableFuture<Void> publish(String routingKey, Object payload) {
+        return publish(routingKey, payload, false);
+    }
+
+    /**
+     * Like {@link #publish}, for messages reporting work that has already been done and cannot be
+     * redone, such as the outcome of a charge. After maxAttempts the message is still re-sent,
+     * with the longest backoff, for as long as the publisher runs; the future only fails if it is
+     * shut down first.
+     */
+    public CompletableFuture<Void> publishUntilConfirmed(String routingKey, Object payload) {
+        return publish(routingKey, payload, true);
+    }
+
+    private CompletableFuture<Void> publish(String routingKey, Object payload, boolean untilConfirmed) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageIdPrefix + Long.toString(messageSequence.incrementAndGet(), 36));
+        Pending pending = new Pending(routingKey, messageConverter.toMessage(payload, properties), untilConfirmed);
+        published.increment();
+
+        List<Pending> ready = null;
+        synchronized (buffers) {
+            List<Pending> buffer = buffers.get(routingKey);
+            if (buffer == null) {
+                buffer = new ArrayList<>(batchSize);
+                buffers.put(routingKey, buffer);
+                List<Pending> lingering = buffer;
+                scheduler.schedule(() -> flushIfCurrent(routingKey, lingering), lingerMs, TimeUnit.MILLISECONDS);
+            }
+            buffer.add(pending);
+            if (buffer.size() >= batchSize) {
+                buffers.remove(routingKey);
+                ready = buffer;
+            }
+        }
+        if (ready != null) {
+            submit(ready);
+        }
+        return pending.result;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.sum());
+        stats.put("confirmed", confirmed.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    // Sends whatever is buffered and waits, bounded by the confirm timeout, for it to be confirmed
+    public void shutdown() {
+        stopped = true;
+        List<List<Pending>> remaining;
+        synchronized (buffers) {
+            remaining = new ArrayList<>(buffers.values());
+            buffers.clear();
+        }
+        remaining.forEach(this::submit);
+        scheduler.shutdown();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(confirmTimeoutMs * maxAttempts + retryBackoffMs * maxAttempts, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushIfCurrent(String routingKey, List<Pending> buffer) {
+        synchronized (buffers) {
+            // A size-triggered flush already took this buffer
+            if (buffers.get(routingKey) != buffer) {
+                return;
+            }
+            buffers.remove(routingKey);
+        }
+        submit(buffer);
+    }
+
+    private void submit(List<Pending> batch) {
+        try {
+            senders.execute(() -> send(batch));
+        } catch (Exception e) {
+            // Executor shut down: nothing will send these, so fail them now
+            batch.forEach(pending -> fail(pending, e));
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        batches.increment();
+        List<Pending> unconfirmed = new ArrayList<>();
+        // Counted before sending, so a batch that cannot even reach the broker still backs off and gives up
+        for (Pending pending : batch) {
+            pending.attempts++;
+        }
+        try {
+            // One channel for the whole batch; confirms arrive asynchronously per correlation id
+            rabbitTemplate.invoke(operations -> {
+                for (Pending pending : batch) {
+                    pending.correlation = new CorrelationData();
+                    operations.send("", pending.routingKey, pending.message, pending.correlation);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Publishing a batch of {} failed: {}", batch.size(), e.getMessage());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (Pending pending : batch) {
+            Exception cause = awaitConfirm(pending, deadline);
+            if (cause == null) {
+                confirmed.increment();
+                pending.result.complete(null);
+            } else {
+                pending.lastFailure = cause;
+                unconfirmed.add(pending);
+            }
+        }
+        if (!unconfirmed.isEmpty()) {
+            retry(unconfirmed);
+        }
+    }
+
+    private Exception awaitConfirm(Pending pending, long deadline) {
+        if (pending.correlation == null) {
+            return new AmqpException("Message was not sent");
+        }
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            CorrelationData.Confirm confirm = pending.correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+            if (!confirm.isAck()) {
+                return new AmqpException("Broker nacked message: " + confirm.getReason());
+            }
+            if (pending.correlation.getReturned() != null) {
+                return new AmqpException("Message returned as unroutable: " + pending.correlation.getReturned().getReplyText());
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return new AmqpException("No publisher confirm within " + confirmTimeoutMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private void retry(List<Pending> unconfirmed) {
+        List<Pending> again = new ArrayList<>(unconfirmed.size());
+        for (Pending pending : unconfirmed) {
+            if (pending.attempts >= maxAttempts && (stopped || !pending.untilConfirmed)) {
+                fail(pending, pending.lastFailure);
+            } else {
+                retried.increment();
+                pending.correlation = null;
+                again.add(pending);
+            }
+        }
+        if (again.isEmpty()) {
+            return;
+        }
+        logger.warn("Re-sending {} unconfirmed message(s)", again.size());
+        try {
+            long backoffMs = retryBackoffMs * Math.min(again.get(0).attempts, maxAttempts);
+            scheduler.schedule(() -> submit(again), backoffMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            again.forEach(pending -> fail(pending, e));
+        }
+    }
+
+    private void fail(Pending pending, Exception cause) {
+        failed.increment();
+        logger.error("Giving up on message to {} after {} attempt(s): {}",
+                pending.routingKey, pending.attempts, cause != null ? cause.getMessage() : "unknown");
+        pending.result.completeExceptionally(cause != null ? cause : new AmqpException("Message not confirmed"));
+    }
+
+    private static final class Pending {
+        final String routingKey;
+        final Message message;
+        final boolean untilConfirmed;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        int attempts;
+        CorrelationData correlation;
+        Exception lastFailure;
+
+        Pending(String routingKey, Message message, boolean untilConfirmed) {
+            this.routingKey = routingKey;
+            this.message = message;
+            this.untilConfirmed = untilConfirmed;
+        }
+    }
+}
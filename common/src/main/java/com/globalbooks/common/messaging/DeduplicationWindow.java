@@ -0,0 +1,83 @@
+package com.globalbooks.common.messaging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers recently seen idempotency keys so a consumer can drop redelivered or duplicated
+ * messages. Keys go into a current generation; once it is windowMs old or holds half of
+ * maxKeys it becomes the previous generation, and the generation before that is dropped
+ * whole. A key is therefore remembered for at least windowMs unless more than maxKeys/2
+ * arrive in that time, memory stays bounded, and there is no per-key expiry work.
+ *
+ * A check reads the previous generation and does one putIfAbsent on the current one; no
+ * lock is taken outside ConcurrentHashMap's own per-bin insert.
+ */
+public class DeduplicationWindow {
+
+    private final long windowNanos;
+    private final long generationCapacity;
+    private final AtomicReference<Generations> generations;
+    private final LongAdder duplicates = new LongAdder();
+
+    public DeduplicationWindow(long windowMs, int maxKeys) {
+        this.windowNanos = windowMs * 1_000_000L;
+        this.generationCapacity = Math.max(1, maxKeys / 2);
+        this.generations = new AtomicReference<>(new Generations(new ConcurrentHashMap<>(), System.nanoTime()));
+    }
+
+    /**
+     * Records key and returns true if it was not seen within the window. A null key (a message
+     * published without an id) is never treated as a duplicate.
+     */
+    public boolean firstSeen(String key) {
+        if (key == null) {
+            return true;
+        }
+        Generations g = current();
+        if (g.previous.containsKey(key) || g.current.putIfAbsent(key, Boolean.TRUE) != null) {
+            duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Called when a message is requeued, so its redelivery is processed rather than dropped
+    public void forget(String key) {
+        if (key != null) {
+            Generations g = generations.get();
+            g.current.remove(key);
+            g.previous.remove(key);
+        }
+    }
+
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    private Generations current() {
+        Generations g = generations.get();
+        long now = System.nanoTime();
+        long age = now - g.started;
+        if (age >= windowNanos || g.current.mappingCount() >= generationCapacity) {
+            // After two idle windows even the current generation has expired
+            ConcurrentHashMap<String, Boolean> kept = age >= 2 * windowNanos ? new ConcurrentHashMap<>() : g.current;
+            // Another thread may rotate first; either way the winner's generations are used
+            generations.compareAndSet(g, new Generations(kept, now));
+            g = generations.get();
+        }
+        return g;
+    }
+
+    private static final class Generations {
+        final ConcurrentHashMap<String, Boolean> previous;
+        final ConcurrentHashMap<String, Boolean> current = new ConcurrentHashMap<>();
+        final long started;
+
+        Generations(ConcurrentHashMap<String, Boolean> previous, long started) {
+            this.previous = previous;
+            this.started = started;
+        }
+    }
+}
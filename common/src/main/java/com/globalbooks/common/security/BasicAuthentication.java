@@ -0,0 +1,41 @@
+package com.globalbooks.common.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Checks HTTP Basic Authorization headers against a {@link CredentialStore}, for the admin
+ * endpoints that are guarded by their own credential list rather than by a user token.
+ */
+public final class BasicAuthentication {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private BasicAuthentication() {
+    }
+
+    /**
+     * Returns true if the header carries a username and password the store knows.
+     */
+    public static boolean authenticated(CredentialStore credentials, String authorization) {
+        if (authorization == null || !authorization.startsWith(BASIC_PREFIX)) {
+            return false;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(authorization.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) {
+            return false;
+        }
+        String expected = credentials.passwordFor(decoded.substring(0, colon));
+        // Constant-time, so the response time does not reveal how much of the password matched
+        return expected != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                decoded.substring(colon + 1).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,29 @@
+package com.globalbooks.common.security;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Credentials from a comma-separated list of username=password pairs, such as ws.security.credentials.
+ */
+public class ConfiguredCredentialStore implements CredentialStore {
+
+    private final Map<String, String> passwords;
+
+    public ConfiguredCredentialStore(String credentials) {
+        Map<String, String> parsed = new HashMap<>();
+        for (String entry : credentials.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                parsed.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+        }
+        this.passwords = Collections.unmodifiableMap(parsed);
+    }
+
+    @Override
+    public String passwordFor(String username) {
+        return username != null ? passwords.get(username) : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.globalbooks.common.security;
+
+/**
+ * Source of SOAP client passwords for UsernameToken authentication. PasswordDigest tokens are
+ * checked by recomputing the digest, so implementations must return the password itself.
+ */
+public interface CredentialStore {
+
+    /**
+     * Returns the password for the username, or null if the username is unknown.
+     */
+    String passwordFor(String username);
+}
@@ -0,0 +1,74 @@
+package com.globalbooks.common.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers UsernameToken nonces so a captured token cannot be sent again.
+ *
+ * Callers only pass tokens whose Created time is within the last ttl (see the freshness check
+ * in the interceptor). Nonces are therefore bucketed by Created time, and a whole bucket is
+ * dropped once every token in it is too old to pass that check, so a nonce is held exactly as
+ * long as its token could still be accepted. When maxKeys nonces are held, new tokens are
+ * refused rather than older nonces forgotten.
+ */
+public class NonceReplayCache {
+
+    private final long ttlMs;
+    private final long bucketMs;
+    private final int maxKeys;
+    private final ConcurrentHashMap<Long, Map<String, Boolean>> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile long nextEviction;
+
+    public NonceReplayCache(long ttlMs, int maxKeys) {
+        this.ttlMs = ttlMs;
+        this.bucketMs = Math.max(1000, ttlMs / 10);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Records the nonce key of a token created at the given time (epoch millis). Returns false
+     * if the key was already used, or if the cache is full.
+     */
+    public boolean firstUse(String key, long created) {
+        long now = System.currentTimeMillis();
+        if (now >= nextEviction) {
+            evictExpired(now);
+        }
+        if (size.get() >= maxKeys) {
+            return false;
+        }
+        Map<String, Boolean> bucket = buckets.computeIfAbsent(Math.floorDiv(created, bucketMs),
+                index -> new ConcurrentHashMap<>());
+        if (bucket.putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private synchronized void evictExpired(long now) {
+        if (now < nextEviction) {
+            return;
+        }
+        int remaining = 0;
+        for (Iterator<Map.Entry<Long, Map<String, Boolean>>> it = buckets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Map<String, Boolean>> bucket = it.next();
+            // Newest Created time in the bucket is already past the ttl: none of its tokens can be accepted again
+            if ((bucket.getKey() + 1) * bucketMs <= now - ttlMs) {
+                it.remove();
+            } else {
+                remaining += bucket.getValue().size();
+            }
+        }
+        size.set(remaining);
+        nextEviction = now + bucketMs;
+    }
+}
@@ -0,0 +1,233 @@
+package com.globalbooks.common.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.soap.SoapHeader;
+import org.springframework.ws.soap.SoapHeaderElement;
+import org.springframework.ws.soap.SoapMessage;
+import org.springframework.ws.soap.server.SoapEndpointInterceptor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WS-Security UsernameToken check for SOAP endpoints. Each service registers a subclass that
+ * binds the ws.security.* settings.
+ *
+ * Reads the token straight from the wsse:Security header instead of running a full WSS4J
+ * processing pass. PasswordText and PasswordDigest tokens are verified against the
+ * {@link CredentialStore}. A token carrying a Nonce must also carry a fresh Created time, and
+ * each nonce is accepted once. Verified PasswordText credentials are remembered for a while,
+ * so a client repeating the same token skips the credential store. The authenticated username
+ * is left in the {@link #PRINCIPAL_PROPERTY} message context property for the endpoint.
+ */
+public class UsernameTokenInterceptor implements SoapEndpointInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameTokenInterceptor.class);
+
+    private static final String WSSE_NS = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+    private static final String WSU_NS = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd";
+    private static final String TOKEN_PROFILE = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-username-token-profile-1.0";
+    private static final String PASSWORD_TEXT = TOKEN_PROFILE + "#PasswordText";
+    private static final String PASSWORD_DIGEST = TOKEN_PROFILE + "#PasswordDigest";
+    private static final QName SECURITY = new QName(WSSE_NS, "Security");
+
+    public static final String PRINCIPAL_PROPERTY = "globalbooks.ws.principal";
+
+    private final CredentialStore credentialStore;
+    private final NonceReplayCache replayCache;
+    private final long tokenTtlMs;
+    private final long futureSkewMs;
+    private final boolean requireNonce;
+    private final long principalTtlMs;
+    private final int principalCacheMaxEntries;
+    // username + '\0' + password -> when the verification expires
+    private final Map<String, Long> verifiedPrincipals = new ConcurrentHashMap<>();
+
+    public UsernameTokenInterceptor(CredentialStore credentialStore, long tokenTtlSeconds, long futureSkewSeconds,
+                                    boolean requireNonce, int replayCacheMaxEntries,
+                                    long principalTtlSeconds, int principalCacheMaxEntries) {
+        this.credentialStore = credentialStore;
+        this.tokenTtlMs = tokenTtlSeconds * 1000;
+        this.futureSkewMs = futureSkewSeconds * 1000;
+        this.requireNonce = requireNonce;
+        this.replayCache = new NonceReplayCache(tokenTtlMs, replayCacheMaxEntries);
+        this.principalTtlMs = principalTtlSeconds * 1000;
+        this.principalCacheMaxEntries = principalCacheMaxEntries;
+    }
+
+    @Override
+    public boolean handleRequest(MessageContext messageContext, Object endpoint) throws Exception {
+        String failure = authenticate(messageContext);
+        if (failure == null) {
+            return true;
+        }
+        logger.debug("Rejected SOAP request: {}", failure);
+        ((SoapMessage) messageContext.getResponse()).getSoapBody()
+                .addClientOrSenderFault("The security token could not be authenticated or authorized", Locale.ENGLISH);
+        return false;
+    }
+
+    @Override
+    public boolean understands(SoapHeaderElement header) {
+        return SECURITY.equals(header.getName());
+    }
+
+    @Override
+    public boolean handleResponse(MessageContext messageContext, Object endpoint) {
+        return true;
+    }
+
+    @Override
+    public boolean handleFault(MessageContext messageContext, Object endpoint) {
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(MessageContext messageContext, Object endpoint, Exception ex) {
+    }
+
+    // Returns why the request is rejected, or null if it is authenticated
+    private String authenticate(MessageContext messageContext) throws Exception {
+        SoapHeader header = ((SoapMessage) messageContext.getRequest()).getSoapHeader();
+        Iterator<SoapHeaderElement> security = header != null ? header.examineHeaderElements(SECURITY) : null;
+        if (security == null || !security.hasNext()) {
+            return "no wsse:Security header";
+        }
+        Element token = child(toElement(security.next().getSource()), WSSE_NS, "UsernameToken");
+        if (token == null) {
+            return "no UsernameToken";
+        }
+        String username = text(child(token, WSSE_NS, "Username"));
+        Element passwordElement = child(token, WSSE_NS, "Password");
+        if (username == null || passwordElement == null) {
+            return "UsernameToken without Username or Password";
+        }
+        // Not trimmed: surrounding whitespace is part of a text password
+        String password = passwordElement.getTextContent();
+        String type = passwordElement.getAttribute("Type");
+        String nonce = text(child(token, WSSE_NS, "Nonce"));
+        String created = text(child(token, WSU_NS, "Created"));
+
+        long createdAt = 0;
+        if (created != null) {
+            try {
+                createdAt = OffsetDateTime.parse(created).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return "unparseable Created " + created;
+            }
+            long now = System.currentTimeMillis();
+            if (createdAt < now - tokenTtlMs || createdAt > now + futureSkewMs) {
+                return "stale or future Created " + created;
+            }
+        }
+        boolean digest = PASSWORD_DIGEST.equals(type);
+        if (!digest && !type.isEmpty() && !PASSWORD_TEXT.equals(type)) {
+            return "unsupported password type " + type;
+        }
+        if ((digest || requireNonce || nonce != null) && (nonce == null || created == null)) {
+            // Without both, the nonce cannot be bounded in time and so cannot be checked for replay
+            return "token needs a Nonce and Created";
+        }
+
+        boolean verified = digest
+                ? verifyDigest(username, password.trim(), nonce, created)
+                : verifyText(username, password);
+        if (!verified) {
+            return "bad credentials for " + username;
+        }
+        // Checked after the password, so only authenticated clients can add nonces
+        if (nonce != null && !replayCache.firstUse(username + ':' + nonce, createdAt)) {
+            return "replayed nonce from " + username;
+        }
+        messageContext.setProperty(PRINCIPAL_PROPERTY, username);
+        return null;
+    }
+
+    private boolean verifyText(String username, String password) {
+        String key = username + '\0' + password;
+        long now = System.currentTimeMillis();
+        Long expiresAt = verifiedPrincipals.get(key);
+        if (expiresAt != null && expiresAt > now) {
+            return true;
+        }
+        String expected = credentialStore.passwordFor(username);
+        if (expected == null || !MessageDigest.isEqual(bytes(expected), bytes(password))) {
+            return false;
+        }
+        if (verifiedPrincipals.size() >= principalCacheMaxEntries) {
+            verifiedPrincipals.clear();
+        }
+        verifiedPrincipals.put(key, now + principalTtlMs);
+        return true;
+    }
+
+    // Password_Digest = Base64(SHA-1(nonce + created + password)), with the nonce Base64-decoded
+    private boolean verifyDigest(String username, String digest, String nonce, String created) throws NoSuchAlgorithmException {
+        String expected = credentialStore.passwordFor(username);
+        if (expected == null) {
+            return false;
+        }
+        byte[] nonceBytes;
+        byte[] presented;
+        try {
+            nonceBytes = Base64.getDecoder().decode(nonce);
+            presented = Base64.getDecoder().decode(digest);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update(nonceBytes);
+        sha1.update(bytes(created));
+        sha1.update(bytes(expected));
+        return MessageDigest.isEqual(sha1.digest(), presented);
+    }
+
+    private static Element toElement(Source source) throws Exception {
+        Node node;
+        if (source instanceof DOMSource) {
+            // SAAJ messages are already DOM trees, so this is the usual case
+            node = ((DOMSource) source).getNode();
+        } else {
+            DOMResult result = new DOMResult();
+            TransformerFactory.newInstance().newTransformer().transform(source, result);
+            node = result.getNode();
+        }
+        return node instanceof Document ? ((Document) node).getDocumentElement() : (Element) node;
+    }
+
+    private static Element child(Element parent, String namespace, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE
+                    && localName.equals(node.getLocalName()) && namespace.equals(node.getNamespaceURI())) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static String text(Element element) {
+        return element != null ? element.getTextContent().trim() : null;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,16 @@
+package com.globalbooks.orchestration.channel;
+
+/**
+ * How orders submitted through REST or SOAP reach the orchestration flow.
+ */
+public enum InputChannelMode {
+
+    /** The flow runs on the submitting request thread. */
+    DIRECT,
+
+    /** The flow runs on a bounded thread pool; submissions are rejected when its queue is full. */
+    EXECUTOR,
+
+    /** Orders are buffered in a bounded queue that pollers drain; submissions are rejected when it is full. */
+    QUEUE
+}
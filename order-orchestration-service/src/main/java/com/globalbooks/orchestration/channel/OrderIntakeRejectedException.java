@@ -0,0 +1,29 @@
+package com.globalbooks.orchestration.channel;
+
+/**
+ * Thrown when the order input channel has no room for another order. It carries the HTTP status
+ * to answer with (429 or 503) and how long the caller should wait before retrying.
+ */
+public class OrderIntakeRejectedException extends RuntimeException {
+
+    private final int status;
+    private final int retryAfterSeconds;
+
+    public OrderIntakeRejectedException(String message, int status, int retryAfterSeconds) {
+        this(message, status, retryAfterSeconds, null);
+    }
+
+    public OrderIntakeRejectedException(String message, int status, int retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,143 @@
+package com.globalbooks.orchestration.config;
+
+import com.globalbooks.orchestration.http.HttpClientMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTTP client used by every outbound call from the orchestrator
+ * (catalog, orders and auth services).
+ *
+ * By default this is Apache HttpClient with a pooled, keep-alive connection manager
+ * and per-route limits. Setting http-client.http2.enabled switches to OkHttp, which
+ * multiplexes requests over HTTP/2 connections.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientConfig.class);
+
+    @Value("${http-client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${http-client.read-timeout-ms:5000}")
+    private int readTimeoutMs;
+
+    @Value("${http-client.pool-acquire-timeout-ms:1000}")
+    private int poolAcquireTimeoutMs;
+
+    @Value("${http-client.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${http-client.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    // Per-destination pool sizes, e.g. "localhost:8085=100,localhost:8082=20"
+    @Value("${http-client.route-max-connections:}")
+    private String routeMaxConnections;
+
+    @Value("${http-client.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${http-client.idle-eviction-ms:60000}")
+    private long idleEvictionMs;
+
+    @Value("${http-client.http2.enabled:false}")
+    private boolean http2Enabled;
+
+    // Cleartext HTTP/2 (h2c) without upgrade; every target must support it
+    @Value("${http-client.http2.prior-knowledge:false}")
+    private boolean http2PriorKnowledge;
+
+    @Bean
+    public HttpClientMetrics httpClientMetrics() {
+        return new HttpClientMetrics();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory clientHttpRequestFactory() {
+        if (http2Enabled) {
+            logger.info("Using OkHttp client with HTTP/2 (prior knowledge: {})", http2PriorKnowledge);
+            return new OkHttp3ClientHttpRequestFactory(okHttpClient());
+        }
+        return new HttpComponentsClientHttpRequestFactory(pooledHttpClient());
+    }
+
+    @Bean
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory, HttpClientMetrics httpClientMetrics) {
+        RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory);
+        restTemplate.getInterceptors().add(httpClientMetrics);
+        return restTemplate;
+    }
+
+    private CloseableHttpClient pooledHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(2000);
+        applyRouteLimits(connectionManager);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Honour the server's Keep-Alive header, otherwise keep connections for keepAliveMs
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? serverKeepAlive : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private void applyRouteLimits(PoolingHttpClientConnectionManager connectionManager) {
+        for (String entry : StringUtils.commaDelimitedListToStringArray(routeMaxConnections)) {
+            String[] parts = entry.trim().split("=");
+            String[] hostAndPort = parts[0].trim().split(":");
+            if (parts.length != 2 || hostAndPort.length != 2) {
+                throw new IllegalArgumentException("Invalid http-client.route-max-connections entry: " + entry);
+            }
+            HttpHost host = new HttpHost(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+            connectionManager.setMaxPerRoute(new HttpRoute(host), Integer.parseInt(parts[1].trim()));
+        }
+    }
+
+    private OkHttpClient okHttpClient() {
+        return new OkHttpClient.Builder()
+                .protocols(http2PriorKnowledge
+                        ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE)
+                        : Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(maxConnectionsPerRoute, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
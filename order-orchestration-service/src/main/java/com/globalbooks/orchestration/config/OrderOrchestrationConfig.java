@@ -1,34 +1,105 @@
 package com.globalbooks.orchestration.config;
 
+import com.globalbooks.common.config.VirtualThreadConfig;
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import com.globalbooks.orchestration.channel.InputChannelMode;
+import com.globalbooks.orchestration.channel.OrderIntakeMetrics;
+import com.globalbooks.orchestration.messaging.PublishingMessageHandler;
 import com.globalbooks.orchestration.service.AuthenticationService;
 import com.globalbooks.orchestration.service.CatalogService;
 import com.globalbooks.orchestration.service.OrderConfirmationService;
 import com.globalbooks.orchestration.service.OrderService;
-import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.rabbit.connection.ConnectionFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.integration.amqp.dsl.Amqp;
-import org.springframework.integration.amqp.outbound.AmqpOutboundEndpoint;
+import org.springframework.integration.channel.AbstractMessageChannel;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.ExecutorChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.config.EnableIntegration;
 import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.IntegrationFlowBuilder;
 import org.springframework.integration.dsl.IntegrationFlows;
+import org.springframework.integration.dsl.Pollers;
 import org.springframework.integration.handler.LoggingHandler;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
  @Configuration @EnableIntegration
 public class OrderOrchestrationConfig {
 
+    @Value("${orchestration.input-channel.mode:DIRECT}")
+    private InputChannelMode inputChannelMode;
+
+    @Value("${orchestration.input-channel.threads:16}")
+    private int inputChannelThreads;
+
+    @Value("${orchestration.input-channel.queue-capacity:1000}")
+    private int inputChannelQueueCapacity;
+
+    @Value("${orchestration.input-channel.poll-interval-ms:10}")
+    private long inputChannelPollIntervalMs;
+
+    @Value("${rabbit.publisher.outbound-timeout-ms:20000}")
+    private long outboundTimeoutMs;
+
+    @Value("${globalbooks.threads.virtual:false}")
+    private boolean virtualThreads;
+
     // Message Channels
     @Bean
     public MessageChannel orderInputChannel() {
-        return new DirectChannel();
+        AbstractMessageChannel channel;
+        OrderIntakeMetrics metrics = orderIntakeMetrics();
+        switch (inputChannelMode) {
+            case EXECUTOR:
+                ThreadPoolTaskExecutor executor = orderProcessingExecutor();
+                channel = new ExecutorChannel(executor);
+                metrics.setQueueDepth(() -> executor.getThreadPoolExecutor().getQueue().size(), inputChannelQueueCapacity);
+                break;
+            case QUEUE:
+                QueueChannel queueChannel = new QueueChannel(inputChannelQueueCapacity);
+                channel = queueChannel;
+                metrics.setQueueDepth(queueChannel::getQueueSize, inputChannelQueueCapacity);
+                break;
+            default:
+                channel = new DirectChannel();
+        }
+        channel.addInterceptor(metrics);
+        return channel;
+    }
+
+    @Bean
+    public OrderIntakeMetrics orderIntakeMetrics() {
+        return new OrderIntakeMetrics(inputChannelMode);
+    }
+
+    // Runs the orchestration flow off the request thread in EXECUTOR and QUEUE modes
+    @Bean
+    public ThreadPoolTaskExecutor orderProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(inputChannelThreads);
+        executor.setMaxPoolSize(inputChannelThreads);
+        executor.setThreadNamePrefix("order-processing-");
+        if (virtualThreads) {
+            // Workers are cheap, so threads can be raised to the number of orders allowed in flight
+            executor.setThreadFactory(VirtualThreadConfig.virtualThreadFactory("order-processing-vt-"));
+        }
+        if (inputChannelMode == InputChannelMode.QUEUE) {
+            // Buffering happens in the QueueChannel; when every thread is already draining it, skip the poll
+            executor.setQueueCapacity(0);
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        } else {
+            // Default AbortPolicy: a full queue rejects the order so the caller can back off
+            executor.setQueueCapacity(inputChannelQueueCapacity);
+        }
+        return executor;
     }
 
     @Bean
@@ -53,24 +124,18 @@ public class OrderOrchestrationConfig {
     }
 
     @Bean
-    public AmqpOutboundEndpoint orderOutbound(AmqpTemplate amqpTemplate) {
-        return Amqp.outboundAdapter(amqpTemplate)
-                .routingKey("order.queue")
-                .get();
+    public MessageHandler orderOutbound(ConfirmedBatchPublisher publisher) {
+        return new PublishingMessageHandler(publisher, "order.queue", outboundTimeoutMs);
     }
 
     @Bean
-    public AmqpOutboundEndpoint paymentOutbound(AmqpTemplate amqpTemplate) {
-        return Amqp.outboundAdapter(amqpTemplate)
-                .routingKey("payment.queue")
-                .get();
+    public MessageHandler paymentOutbound(ConfirmedBatchPublisher publisher) {
+        return new PublishingMessageHandler(publisher, "payment.queue", outboundTimeoutMs);
     }
 
     @Bean
-    public AmqpOutboundEndpoint shippingOutbound(AmqpTemplate amqpTemplate) {
-        return Amqp.outboundAdapter(amqpTemplate)
-                .routingKey("shipping.queue")
-                .get();
+    public MessageHandler shippingOutbound(ConfirmedBatchPublisher publisher) {
+        return new PublishingMessageHandler(publisher, "shipping.queue", outboundTimeoutMs);
     }
 
     // Declare all necessary queues
@@ -107,10 +172,10 @@ public class OrderOrchestrationConfig {
 
     // Order flow - send to order.queue
     @Bean
-    public IntegrationFlow orderFlow(AmqpTemplate amqpTemplate) {
+    public IntegrationFlow orderFlow(MessageHandler orderOutbound) {
         return IntegrationFlows.from(orderChannel())
                 .log(LoggingHandler.Level.INFO, "order", m -> "Sending to order.queue: " + m.getPayload())
-                .handle(orderOutbound(amqpTemplate))
+                .handle(orderOutbound)
                 .get();
     }
 
@@ -124,12 +189,17 @@ public class OrderOrchestrationConfig {
 
     // Main order processing flow - simplified to just enrich and send to order.queue
     @Bean
-    public IntegrationFlow orderProcessingFlow(
-            CatalogService catalogService,
-            AmqpOutboundEndpoint orderOutbound) {
-        
-        return IntegrationFlows
-                .from(orderInputChannel())
+    public IntegrationFlow orderProcessingFlow(CatalogService catalogService) {
+        IntegrationFlowBuilder flow = IntegrationFlows.from(orderInputChannel());
+        if (inputChannelMode == InputChannelMode.QUEUE) {
+            // Each poll drains the queue on a processing thread; overlapping polls give up to N consumers
+            flow = flow.bridge(e -> e.poller(Pollers.fixedDelay(inputChannelPollIntervalMs)
+                    .maxMessagesPerPoll(-1)
+                    .receiveTimeout(inputChannelPollIntervalMs)
+                    .taskExecutor(orderProcessingExecutor())));
+        }
+
+        return flow
                 .log(LoggingHandler.Level.INFO, "orchestration", m -> "Starting order processing: " + m.getPayload())
 
                 // Step 1: Check Book Availability and enrich with book details (SOAP Call)
@@ -141,8 +211,21 @@ public class OrderOrchestrationConfig {
                 .get();
     }
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    // Bounded pool for parallel catalog lookups; its size caps concurrent calls to catalog-service
+    @Bean
+    public ThreadPoolTaskExecutor catalogLookupExecutor(
+            @Value("${catalog.enrichment.concurrency:8}") int concurrency,
+            @Value("${catalog.enrichment.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("catalog-lookup-");
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreadConfig.virtualThreadFactory("catalog-lookup-vt-"));
+        }
+        // When the queue is full the caller does the lookup itself rather than failing the order
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
     }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.globalbooks.orchestration.config;
 
+import com.globalbooks.common.security.ConfiguredCredentialStore;
+import com.globalbooks.common.security.CredentialStore;
 import com.globalbooks.orchestration.security.OrderSecurityInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -20,6 +23,12 @@ import java.util.List;
 @Configuration
 public class SoapConfig extends WsConfigurerAdapter {
 
+    private final OrderSecurityInterceptor orderSecurityInterceptor;
+
+    public SoapConfig(OrderSecurityInterceptor orderSecurityInterceptor) {
+        this.orderSecurityInterceptor = orderSecurityInterceptor;
+    }
+
     @Bean
     public ServletRegistrationBean<MessageDispatcherServlet> messageDispatcherServlet(ApplicationContext applicationContext) {
         MessageDispatcherServlet servlet = new MessageDispatcherServlet();
@@ -30,6 +39,12 @@ public class SoapConfig extends WsConfigurerAdapter {
         return registration;
     }
 
+    // Static, so the interceptor injected into this configuration can be built before it
+    @Bean
+    public static CredentialStore credentialStore(@Value("${ws.security.credentials:}") String credentials) {
+        return new ConfiguredCredentialStore(credentials);
+    }
+
     @Bean(name = "orders")
     public DefaultWsdl11Definition defaultWsdl11Definition(XsdSchema ordersSchema) {
         DefaultWsdl11Definition wsdl11Definition = new DefaultWsdl11Definition();
@@ -45,21 +60,11 @@ public class SoapConfig extends WsConfigurerAdapter {
         return new SimpleXsdSchema(new ClassPathResource("orders.xsd"));
     }
     
-    /**
-     * WS-Security interceptor for SOAP endpoints ONLY.
-     * 
-     * CRITICAL: This interceptor only affects SOAP requests to /ws/* endpoints.
-     * REST endpoints at /api/* with JWT authentication are completely unaffected.
-     */
-    @Bean
-    public OrderSecurityInterceptor orderSecurityInterceptor() {
-        return new OrderSecurityInterceptor();
-    }
-    
     @Override
     public void addInterceptors(List<EndpointInterceptor> interceptors) {
-        // Add WS-Security interceptor ONLY for SOAP endpoints
-        interceptors.add(orderSecurityInterceptor());
+        // WS-Security UsernameToken check, applied to SOAP endpoints ONLY;
+        // REST endpoints at /api/* with JWT authentication are unaffected
+        interceptors.add(orderSecurityInterceptor);
         super.addInterceptors(interceptors);
     }
 }
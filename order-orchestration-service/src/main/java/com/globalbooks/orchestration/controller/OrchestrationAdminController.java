@@ -0,0 +1,81 @@
+package com.globalbooks.orchestration.controller;
+
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import com.globalbooks.orchestration.channel.OrderIntakeMetrics;
+import com.globalbooks.orchestration.http.HttpClientMetrics;
+import com.globalbooks.orchestration.security.JwtVerifier;
+import com.globalbooks.orchestration.service.BookMetadataCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Operational endpoints for the orchestrator's local caches and metrics.
+ * Every request needs HTTP Basic credentials from orchestration.admin.credentials
+ * (checked by {@link com.globalbooks.orchestration.security.AdminAuthInterceptor}).
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class OrchestrationAdminController {
+
+    private final BookMetadataCache bookMetadataCache;
+    private final HttpClientMetrics httpClientMetrics;
+    private final OrderIntakeMetrics orderIntakeMetrics;
+    private final ConfirmedBatchPublisher publisher;
+    private final JwtVerifier jwtVerifier;
+
+    public OrchestrationAdminController(BookMetadataCache bookMetadataCache,
+                                        HttpClientMetrics httpClientMetrics,
+                                        OrderIntakeMetrics orderIntakeMetrics,
+                                        ConfirmedBatchPublisher publisher,
+                                        JwtVerifier jwtVerifier) {
+        this.bookMetadataCache = bookMetadataCache;
+        this.httpClientMetrics = httpClientMetrics;
+        this.orderIntakeMetrics = orderIntakeMetrics;
+        this.publisher = publisher;
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @GetMapping("/catalog-cache")
+    public Map<String, Object> getCatalogCacheStats() {
+        return bookMetadataCache.getStats();
+    }
+
+    // Drop every cached book, e.g. after a catalog reload
+    @DeleteMapping("/catalog-cache")
+    public ResponseEntity<Void> invalidateCatalogCache() {
+        bookMetadataCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/catalog-cache/{bookId}")
+    public ResponseEntity<Void> invalidateCatalogCacheEntry(@PathVariable String bookId) {
+        bookMetadataCache.invalidate(bookId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Per-destination request counts and latencies of the shared HTTP client
+    @GetMapping("/http-clients")
+    public Map<String, Object> getHttpClientMetrics() {
+        return httpClientMetrics.snapshot();
+    }
+
+    // Accepted/rejected orders, queue depth and wait time of orderInputChannel
+    @GetMapping("/order-intake")
+    public Map<String, Object> getOrderIntakeMetrics() {
+        return orderIntakeMetrics.snapshot();
+    }
+
+    // Published, confirmed, retried and failed counts of the outbound AMQP publisher
+    @GetMapping("/publisher")
+    public Map<String, Object> getPublisherMetrics() {
+        return publisher.snapshot();
+    }
+
+    // Verified-token cache and the signing key ids fetched from auth-server
+    @GetMapping("/token-verification")
+    public Map<String, Object> getTokenVerificationStats() {
+        return jwtVerifier.snapshot();
+    }
+}
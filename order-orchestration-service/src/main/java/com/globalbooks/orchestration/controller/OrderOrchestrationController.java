@@ -1,11 +1,14 @@
 package com.globalbooks.orchestration.controller;
 
-import org.springframework.integration.support.MessageBuilder;
-import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.PollableChannel;
+import com.globalbooks.orchestration.channel.OrderIntakeRejectedException;
+import com.globalbooks.orchestration.security.AuthenticatedUser;
+import com.globalbooks.orchestration.security.InvalidTokenException;
+import com.globalbooks.orchestration.service.AuthenticationService;
+import com.globalbooks.orchestration.service.OrderSubmissionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.integration.channel.QueueChannel;
 
 import java.util.Map;
 
@@ -13,36 +16,49 @@ import java.util.Map;
 @RequestMapping("/api/orders")
 public class OrderOrchestrationController {
 
-    private final MessageChannel orderInputChannel;
+    private final OrderSubmissionService orderSubmissionService;
+    private final AuthenticationService authenticationService;
 
-    public OrderOrchestrationController(MessageChannel orderInputChannel) {
-        this.orderInputChannel = orderInputChannel;
+    // When false, orders without a token are still accepted, but without a user identity
+    @Value("${auth.jwt.required:false}")
+    private boolean tokenRequired;
+
+    public OrderOrchestrationController(OrderSubmissionService orderSubmissionService,
+                                        AuthenticationService authenticationService) {
+        this.orderSubmissionService = orderSubmissionService;
+        this.authenticationService = authenticationService;
     }
 
     @PostMapping("/process")
     public Map<String, Object> processOrder(
             @RequestBody Map<String, Object> orderRequest,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        
-        try {
-            // Send the order to the integration flow (async processing)
-            orderInputChannel.send(MessageBuilder
-                .withPayload(orderRequest)
-                .setHeader("Authorization", token)
-                .build());
-            
-            // Return immediate success response
-            Map<String, Object> response = new java.util.HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Order submitted for processing");
-            response.put("bookId", orderRequest.get("bookId"));
-            response.put("customerId", orderRequest.get("customerId"));
-            response.put("quantity", orderRequest.get("quantity"));
-            
-            return response;
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Order processing failed: " + e.getMessage(), e);
+
+        AuthenticatedUser user = null;
+        if (tokenRequired || (token != null && !token.trim().isEmpty())) {
+            user = authenticationService.authenticate(token);
         }
+        return orderSubmissionService.submit(orderRequest, user != null ? user.getUserId() : null,
+                user != null ? user.getUsername() : null, token);
+    }
+
+    @ExceptionHandler(OrderIntakeRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(OrderIntakeRejectedException e) {
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("status", "rejected");
+        body.put("message", e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidToken(InvalidTokenException e) {
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("status", "unauthorized");
+        body.put("message", e.getMessage());
+        return ResponseEntity.status(401)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"")
+                .body(body);
     }
 }
@@ -0,0 +1,77 @@
+package com.globalbooks.orchestration.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records request count, failures, in-flight requests and latency per destination (scheme://host:port)
+ * for every call made through the shared RestTemplate.
+ */
+public class HttpClientMetrics implements ClientHttpRequestInterceptor {
+
+    private final ConcurrentHashMap<String, DestinationStats> destinations = new ConcurrentHashMap<>();
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        DestinationStats stats = destinations.computeIfAbsent(destinationOf(request.getURI()), key -> new DestinationStats());
+        stats.inFlight.increment();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            failed = response.getRawStatusCode() >= 500;
+            return response;
+        } finally {
+            long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            stats.inFlight.decrement();
+            stats.requests.increment();
+            stats.totalMicros.add(elapsedMicros);
+            stats.maxMicros.accumulate(elapsedMicros);
+            if (failed) {
+                stats.failures.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        destinations.forEach((destination, stats) -> result.put(destination, stats.toMap()));
+        return result;
+    }
+
+    private static String destinationOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static final class DestinationStats {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        private Map<String, Object> toMap() {
+            long count = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", count);
+            map.put("failures", failures.sum());
+            map.put("inFlight", inFlight.sum());
+            map.put("avgLatencyMicros", count > 0 ? totalMicros.sum() / count : 0);
+            map.put("maxLatencyMicros", maxMicros.get());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.globalbooks.orchestration.messaging;
+
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outbound adapter that sends each payload through the shared {@link ConfirmedBatchPublisher}
+ * and returns once the broker has confirmed it. Concurrent flows publishing to the same queue
+ * share batches instead of paying one round trip each.
+ */
+public class PublishingMessageHandler extends AbstractMessageHandler {
+
+    private final ConfirmedBatchPublisher publisher;
+    private final String routingKey;
+    private final long timeoutMs;
+
+    public PublishingMessageHandler(ConfirmedBatchPublisher publisher, String routingKey, long timeoutMs) {
+        this.publisher = publisher;
+        this.routingKey = routingKey;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        try {
+            publisher.publish(routingKey, message.getPayload()).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new MessageDeliveryException(message, "Not confirmed by broker for " + routingKey, e.getCause());
+        } catch (TimeoutException e) {
+            throw new MessageDeliveryException(message, "No confirm for " + routingKey + " within " + timeoutMs + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageDeliveryException(message, "Interrupted while publishing to " + routingKey, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.globalbooks.orchestration.security;
+
+import com.globalbooks.common.security.BasicAuthentication;
+import com.globalbooks.common.security.ConfiguredCredentialStore;
+import com.globalbooks.common.security.CredentialStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * HTTP Basic check in front of the /api/admin endpoints, against the username=password pairs
+ * in orchestration.admin.credentials. With none configured every admin request gets 401.
+ */
+@Component
+public class AdminAuthInterceptor implements HandlerInterceptor {
+
+    private final CredentialStore adminCredentials;
+
+    public AdminAuthInterceptor(@Value("${orchestration.admin.credentials:}") String adminCredentials) {
+        this.adminCredentials = new ConfiguredCredentialStore(adminCredentials);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (BasicAuthentication.authenticated(adminCredentials, request.getHeader(HttpHeaders.AUTHORIZATION))) {
+            return true;
+        }
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"orchestration-admin\"");
+        return false;
+    }
+}
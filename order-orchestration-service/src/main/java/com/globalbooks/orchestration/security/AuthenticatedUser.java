@@ -0,0 +1,29 @@
+package com.globalbooks.orchestration.security;
+
+/**
+ * The identity carried by a verified token, and when (epoch millis) the token expires.
+ */
+public class AuthenticatedUser {
+
+    private final String userId;
+    private final String username;
+    private final long expiresAt;
+
+    public AuthenticatedUser(String userId, String username, long expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,15 @@
+package com.globalbooks.orchestration.security;
+
+/**
+ * Thrown when a request's bearer token is missing, malformed, expired or not signed by auth-server.
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,188 @@
+package com.globalbooks.orchestration.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Supplies auth-server's public keys, by key id, for token verification. The JWK set is
+ * fetched at startup and every refresh interval. A token with an unknown kid (after a key
+ * change) triggers one extra fetch, at most once per min-refresh interval, so forged kids
+ * cannot turn into a call per request.
+ */
+@Component
+public class JwksKeyResolver extends SigningKeyResolverAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyResolver.class);
+
+    private final RestTemplate restTemplate;
+    private final String jwksUrl;
+    private final long refreshSeconds;
+    private final long minRefreshIntervalNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Map<String, SigningKey> keys = Collections.emptyMap();
+    private final AtomicLong lastOnDemandFetch;
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+
+    public JwksKeyResolver(RestTemplate restTemplate,
+                           @Value("${auth.jwks.url:${services.auth.url}/.well-known/jwks.json}") String jwksUrl,
+                           @Value("${auth.jwks.refresh-seconds:300}") long refreshSeconds,
+                           @Value("${auth.jwks.min-refresh-interval-seconds:10}") long minRefreshIntervalSeconds) {
+        this.restTemplate = restTemplate;
+        this.jwksUrl = jwksUrl;
+        this.refreshSeconds = refreshSeconds;
+        this.minRefreshIntervalNanos = TimeUnit.SECONDS.toNanos(minRefreshIntervalSeconds);
+        this.lastOnDemandFetch = new AtomicLong(System.nanoTime() - minRefreshIntervalNanos);
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("jwks-refresh-");
+        threads.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threads);
+    }
+
+    @PostConstruct
+    public void start() {
+        // The first fetch runs in the background: auth-server may start after this service
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String keyId = header.getKeyId();
+        SigningKey key = keyId == null ? null : keys.get(keyId);
+        if (key == null && keyId != null && onDemandFetchAllowed()) {
+            refresh();
+            key = keys.get(keyId);
+        }
+        if (key == null) {
+            throw new JwtException("No published signing key with id " + keyId);
+        }
+        // The key dictates the algorithm; a token may not pick a different one
+        if (!key.algorithm.equals(header.getAlgorithm())) {
+            throw new JwtException("Token algorithm " + header.getAlgorithm() + " does not match key " + keyId);
+        }
+        return key.publicKey;
+    }
+
+    /**
+     * Whether the key id is in the JWK set as last fetched. A key dropped by auth-server stops
+     * being published at the next refresh.
+     */
+    public boolean isPublished(String keyId) {
+        return keyId != null && keys.containsKey(keyId);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keyIds", keys.keySet());
+        stats.put("fetches", fetches.sum());
+        stats.put("fetchFailures", fetchFailures.sum());
+        return stats;
+    }
+
+    private boolean onDemandFetchAllowed() {
+        long now = System.nanoTime();
+        long last = lastOnDemandFetch.get();
+        return now - last >= minRefreshIntervalNanos && lastOnDemandFetch.compareAndSet(last, now);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh() {
+        fetches.increment();
+        try {
+            Map<String, Object> body = restTemplate.getForObject(jwksUrl, Map.class);
+            List<Map<String, Object>> jwks = body == null ? null : (List<Map<String, Object>>) body.get("keys");
+            if (jwks == null) {
+                throw new IllegalStateException("Response has no keys");
+            }
+            Map<String, SigningKey> loaded = new HashMap<>();
+            for (Map<String, Object> jwk : jwks) {
+                String keyId = (String) jwk.get("kid");
+                if (keyId == null || (jwk.get("use") != null && !"sig".equals(jwk.get("use")))) {
+                    continue;
+                }
+                try {
+                    loaded.put(keyId, new SigningKey((String) jwk.get("alg"), toPublicKey(jwk)));
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    logger.warn("Ignoring unusable key {} from {}: {}", keyId, jwksUrl, e.getMessage());
+                }
+            }
+            keys = loaded;
+            logger.debug("Loaded {} signing key(s) from {}", loaded.size(), jwksUrl);
+        } catch (Exception e) {
+            fetchFailures.increment();
+            // Keep verifying with the keys we already have
+            logger.warn("Could not fetch signing keys from {}: {}", jwksUrl, e.getMessage());
+        }
+    }
+
+    private static PublicKey toPublicKey(Map<String, Object> jwk) throws GeneralSecurityException {
+        String type = (String) jwk.get("kty");
+        if ("RSA".equals(type)) {
+            return KeyFactory.getInstance("RSA").generatePublic(
+                    new RSAPublicKeySpec(number(jwk, "n"), number(jwk, "e")));
+        }
+        if ("EC".equals(type) && "P-256".equals(jwk.get("crv"))) {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            ECParameterSpec curve = parameters.getParameterSpec(ECParameterSpec.class);
+            return KeyFactory.getInstance("EC").generatePublic(
+                    new ECPublicKeySpec(new ECPoint(number(jwk, "x"), number(jwk, "y")), curve));
+        }
+        throw new GeneralSecurityException("Unsupported key type " + type);
+    }
+
+    private static BigInteger number(Map<String, Object> jwk, String field) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get(field)));
+    }
+
+    private static final class SigningKey {
+        final String algorithm;
+        final PublicKey publicKey;
+
+        SigningKey(String algorithm, PublicKey publicKey) {
+            if (algorithm == null) {
+                throw new IllegalArgumentException("Key has no alg");
+            }
+            this.algorithm = algorithm;
+            this.publicKey = publicKey;
+        }
+    }
+}
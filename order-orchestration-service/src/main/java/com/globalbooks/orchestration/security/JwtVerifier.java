@@ -0,0 +1,115 @@
+package com.globalbooks.orchestration.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies auth-server tokens in-process against the keys held by {@link JwksKeyResolver}.
+ * A verified token is cached until its own expiry, so an order from a returning client costs
+ * a cache lookup rather than a signature check. The cached entry remembers the signing key id
+ * and is dropped once that key is no longer published, so a rotated-out key stops working at
+ * the next JWK set refresh.
+ */
+@Component
+public class JwtVerifier {
+
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verified;
+    private final JwksKeyResolver keyResolver;
+
+    public JwtVerifier(JwksKeyResolver keyResolver,
+                       @Value("${auth.jwt.clock-skew-seconds:30}") long clockSkewSeconds,
+                       @Value("${auth.jwt.cache.max-entries:10000}") long cacheMaxEntries) {
+        this.keyResolver = keyResolver;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyResolver)
+                .setAllowedClockSkewSeconds(clockSkewSeconds)
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the user the token was issued to.
+     *
+     * @throws InvalidTokenException if the token is malformed, expired or not signed by a published key
+     */
+    public AuthenticatedUser verify(String token) {
+        VerifiedToken cached = verified.getIfPresent(token);
+        if (cached != null) {
+            if (keyResolver.isPublished(cached.keyId)) {
+                return cached.user;
+            }
+            verified.invalidate(token);
+        }
+        Jws<Claims> jws;
+        try {
+            jws = parser.parseClaimsJws(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Token rejected: " + e.getMessage(), e);
+        }
+        Claims claims = jws.getBody();
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            throw new InvalidTokenException("Token has no subject or expiry");
+        }
+        // auth-server issues tokens for the username, which is also the customer id orders are filed under
+        AuthenticatedUser user = new AuthenticatedUser(claims.getSubject(), claims.getSubject(), claims.getExpiration().getTime());
+        verified.put(token, new VerifiedToken(user, jws.getHeader().getKeyId()));
+        return user;
+    }
+
+    public Map<String, Object> snapshot() {
+        CacheStats stats = verified.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("cachedTokens", verified.estimatedSize());
+        snapshot.put("cacheHits", stats.hitCount());
+        snapshot.put("cacheMisses", stats.missCount());
+        snapshot.put("keys", keyResolver.snapshot());
+        return snapshot;
+    }
+
+    private static final class VerifiedToken {
+        final AuthenticatedUser user;
+        final String keyId;
+
+        VerifiedToken(AuthenticatedUser user, String keyId) {
+            this.user = user;
+            this.keyId = keyId;
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken entry, long currentTime) {
+            long remainingMs = entry.user.getExpiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
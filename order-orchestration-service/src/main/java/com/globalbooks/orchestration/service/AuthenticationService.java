@@ -1,40 +1,47 @@
 package com.globalbooks.orchestration.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import com.globalbooks.orchestration.security.AuthenticatedUser;
+import com.globalbooks.orchestration.security.InvalidTokenException;
+import com.globalbooks.orchestration.security.JwtVerifier;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.Map;
 
 @Service
 public class AuthenticationService {
 
-    @Value("${services.auth.url}")
-    private String authServiceUrl;
+    private static final String BEARER_PREFIX = "Bearer ";
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final JwtVerifier jwtVerifier;
+
+    public AuthenticationService(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    /**
+     * Verifies an Authorization header value (with or without the Bearer prefix) locally,
+     * without calling auth-server.
+     *
+     * @throws InvalidTokenException if the header is missing or the token does not verify
+     */
+    public AuthenticatedUser authenticate(String authorization) {
+        if (authorization == null || authorization.trim().isEmpty()) {
+            throw new InvalidTokenException("Authorization token is required");
+        }
+        String token = authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length()).trim()
+                : authorization.trim();
+        return jwtVerifier.verify(token);
+    }
 
     @ServiceActivator
     public Message<?> validateToken(Message<?> message) {
         Map<String, Object> payload = (Map<String, Object>) message.getPayload();
-        String token = (String) message.getHeaders().get("Authorization");
-        
-        // For now, just check if token exists and add dummy user info
-        // In production, this would validate with the auth service
-        if (token == null || token.isEmpty()) {
-            throw new RuntimeException("Authorization token is required");
-        }
-        
-        // Simulate successful authentication
-        payload.put("userId", "user123");
-        payload.put("username", "testuser");
-        
+        AuthenticatedUser user = authenticate((String) message.getHeaders().get("Authorization"));
+        payload.put("userId", user.getUserId());
+        payload.put("username", user.getUsername());
         return message;
     }
 }
@@ -0,0 +1,173 @@
+package com.globalbooks.orchestration.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of book title/author data in front of {@link CatalogClient}.
+ *
+ * Backed by Caffeine, which bounds the size with W-TinyLFU so a small set of hot
+ * ISBNs stays resident. Entries are refreshed in the background once they are
+ * older than the refresh interval, and expire after the TTL. Unknown ids are
+ * cached as empty entries with a shorter TTL. Concurrent misses for the same id
+ * share one in-flight load, including misses that arrive through {@link #getAll}.
+ */
+@Component
+public class BookMetadataCache {
+
+    private final AsyncLoadingCache<String, Optional<Map<String, Object>>> cache;
+
+    @Autowired
+    public BookMetadataCache(CatalogClient catalogClient,
+                             @Qualifier("catalogLookupExecutor") Executor catalogLookupExecutor,
+                             @Value("${catalog.cache.max-size:10000}") long maxSize,
+                             @Value("${catalog.cache.ttl-seconds:1800}") long ttlSeconds,
+                             @Value("${catalog.cache.refresh-seconds:600}") long refreshSeconds,
+                             @Value("${catalog.cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new FoundOrMissingExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds),
+                        TimeUnit.SECONDS.toNanos(negativeTtlSeconds)))
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .executor(catalogLookupExecutor)
+                .recordStats()
+                .buildAsync(new CatalogLoader(catalogClient));
+    }
+
+    /**
+     * Returns the book for the id, or a future completing with null if the catalog does not know it.
+     */
+    public CompletableFuture<Map<String, Object>> lookup(String bookId) {
+        return cache.get(bookId).thenApply(book -> book.orElse(null));
+    }
+
+    public Map<String, Object> get(String bookId) {
+        return join(lookup(bookId));
+    }
+
+    /**
+     * Resolves several ids at once; all misses are loaded with a single batch call.
+     * The result only contains ids that exist in the catalog.
+     */
+    public Map<String, Map<String, Object>> getAll(Collection<String> bookIds) {
+        Map<String, Optional<Map<String, Object>>> entries = join(cache.getAll(bookIds));
+        Map<String, Map<String, Object>> found = new LinkedHashMap<>();
+        for (String bookId : bookIds) {
+            Optional<Map<String, Object>> book = entries.get(bookId);
+            if (book != null && book.isPresent()) {
+                found.put(bookId, book.get());
+            }
+        }
+        return found;
+    }
+
+    public void invalidate(String bookId) {
+        cache.synchronous().invalidate(bookId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadSuccessCount", stats.loadSuccessCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    // Surfaces the loader's own exception instead of the CompletionException wrapper
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class CatalogLoader implements CacheLoader<String, Optional<Map<String, Object>>> {
+
+        private final CatalogClient catalogClient;
+
+        private CatalogLoader(CatalogClient catalogClient) {
+            this.catalogClient = catalogClient;
+        }
+
+        @Override
+        public Optional<Map<String, Object>> load(String bookId) {
+            return toEntry(catalogClient.findBook(bookId));
+        }
+
+        @Override
+        public Map<String, Optional<Map<String, Object>>> loadAll(Iterable<? extends String> bookIds) {
+            Collection<String> ids = new ArrayList<>();
+            bookIds.forEach(ids::add);
+            Map<String, Map<String, Object>> books = catalogClient.findBooks(ids);
+
+            // Every requested id gets an entry so unknown ids are negatively cached too
+            Map<String, Optional<Map<String, Object>>> entries = new HashMap<>();
+            for (String bookId : ids) {
+                entries.put(bookId, toEntry(books.get(bookId)));
+            }
+            return entries;
+        }
+
+        private static Optional<Map<String, Object>> toEntry(Map<String, Object> book) {
+            return book != null ? Optional.of(Collections.unmodifiableMap(book)) : Optional.empty();
+        }
+    }
+
+    private static final class FoundOrMissingExpiry implements Expiry<String, Optional<Map<String, Object>>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private FoundOrMissingExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<Map<String, Object>> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<Map<String, Object>> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<Map<String, Object>> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
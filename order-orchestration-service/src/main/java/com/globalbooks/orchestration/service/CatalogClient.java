@@ -0,0 +1,68 @@
+package com.globalbooks.orchestration.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST client for catalog-service book lookups.
+ */
+@Component
+public class CatalogClient {
+
+    @Value("${services.catalog.url}")
+    private String catalogServiceUrl;
+
+    // Must not exceed catalog-service's own catalog.batch.max-ids
+    @Value("${catalog.batch.max-ids:500}")
+    private int maxBatchIds;
+
+    private final RestTemplate restTemplate;
+
+    public CatalogClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Fetches a single book, or returns null if the catalog does not know the id.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> findBook(String bookId) {
+        return restTemplate.getForObject(catalogServiceUrl + "/api/books/{id}", Map.class, bookId);
+    }
+
+    /**
+     * Fetches several books with POST /api/books:batch, one call per catalog.batch.max-ids ids.
+     * The result maps each found id to its book; ids the catalog does not know are absent.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> findBooks(Collection<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> ids = new ArrayList<>(bookIds);
+        Map<String, Map<String, Object>> found = new LinkedHashMap<>();
+        for (int from = 0; from < ids.size(); from += maxBatchIds) {
+            Map<String, Object> request = new HashMap<>();
+            request.put("ids", ids.subList(from, Math.min(from + maxBatchIds, ids.size())));
+
+            Map<String, Object> response = restTemplate.postForObject(
+                    catalogServiceUrl + "/api/books:batch", request, Map.class);
+
+            if (response != null && response.get("books") != null) {
+                for (Map<String, Object> book : (List<Map<String, Object>>) response.get("books")) {
+                    found.put((String) book.get("id"), book);
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -1,19 +1,47 @@
 package com.globalbooks.orchestration.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class CatalogService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /**
+     * How a multi-item cart is resolved against catalog-service.
+     * BATCH loads all cache misses with a single POST /api/books:batch; PARALLEL fans
+     * out one lookup per distinct book on the catalog lookup executor and joins the results.
+     */
+    public enum EnrichmentMode {
+        BATCH,
+        PARALLEL
+    }
+
+    private final BookMetadataCache bookMetadataCache;
+    private final EnrichmentMode enrichmentMode;
+    private final long enrichmentTimeoutMs;
+
+    @Autowired
+    public CatalogService(BookMetadataCache bookMetadataCache,
+                          @Value("${catalog.enrichment.mode:BATCH}") EnrichmentMode enrichmentMode,
+                          @Value("${catalog.enrichment.timeout-ms:5000}") long enrichmentTimeoutMs) {
+        this.bookMetadataCache = bookMetadataCache;
+        this.enrichmentMode = enrichmentMode;
+        this.enrichmentTimeoutMs = enrichmentTimeoutMs;
+    }
 
     @ServiceActivator
     public Message<?> checkAvailability(Message<?> message) {
@@ -23,9 +51,8 @@ public class CatalogService {
             // Check if it's a single book order (direct format)
             String bookId = (String) payload.get("bookId");
             if (bookId != null) {
-                // Call catalog service REST endpoint
-                String url = "http://localhost:8085/api/books/" + bookId;
-                Map response = restTemplate.getForObject(url, Map.class);
+                // Resolve through the local cache, calling the catalog REST endpoint on a miss
+                Map<String, Object> response = bookMetadataCache.get(bookId);
                 
                 if (response == null) {
                     throw new RuntimeException("Book with ID " + bookId + " not found");
@@ -42,22 +69,23 @@ public class CatalogService {
             // Handle legacy items format if needed
             List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
             if (items != null && !items.isEmpty()) {
-                // Extract book IDs and check availability for each book
+                // Collect the distinct book IDs so the whole cart is resolved in one go
+                Set<String> bookIds = new LinkedHashSet<>();
                 for (Map<String, Object> item : items) {
                     String itemBookId = (String) item.get("bookId");
                     if (itemBookId == null) {
                         throw new RuntimeException("Book ID is required for each item");
                     }
-                    
-                    // Call catalog service REST endpoint
-                    String url = "http://localhost:8085/api/books/" + itemBookId;
-                    Map response = restTemplate.getForObject(url, Map.class);
-                    
-                    if (response == null) {
-                        throw new RuntimeException("Book with ID " + itemBookId + " not found");
-                    }
-                    
-                    // Add book details to the item for downstream processing
+                    bookIds.add(itemBookId);
+                }
+
+                Map<String, Map<String, Object>> books = enrichmentMode == EnrichmentMode.PARALLEL
+                        ? findBooksInParallel(bookIds)
+                        : findBooksInBatch(bookIds);
+
+                // Add book details to each item for downstream processing
+                for (Map<String, Object> item : items) {
+                    Map<String, Object> response = books.get((String) item.get("bookId"));
                     item.put("bookTitle", response.get("title"));
                     item.put("bookAuthor", response.get("author"));
                 }
@@ -72,4 +100,57 @@ public class CatalogService {
             throw new RuntimeException("Catalog check failed: " + e.getMessage());
         }
     }
+
+    private Map<String, Map<String, Object>> findBooksInBatch(Set<String> bookIds) {
+        Map<String, Map<String, Object>> books = bookMetadataCache.getAll(bookIds);
+
+        List<String> missingIds = new ArrayList<>();
+        for (String bookId : bookIds) {
+            if (!books.containsKey(bookId)) {
+                missingIds.add(bookId);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            throw new RuntimeException("Books with IDs " + missingIds + " not found");
+        }
+        return books;
+    }
+
+    /**
+     * Looks every book up concurrently, so the cart costs as much as its slowest lookup.
+     * Cache misses are loaded on the catalog lookup executor, which bounds concurrency.
+     * All per-item failures are collected and reported together instead of failing on the first one.
+     */
+    private Map<String, Map<String, Object>> findBooksInParallel(Set<String> bookIds) throws InterruptedException {
+        Map<String, CompletableFuture<Map<String, Object>>> lookups = new LinkedHashMap<>();
+        for (String bookId : bookIds) {
+            lookups.put(bookId, bookMetadataCache.lookup(bookId));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(enrichmentTimeoutMs);
+        Map<String, Map<String, Object>> books = new LinkedHashMap<>();
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Map<String, Object>>> lookup : lookups.entrySet()) {
+            String bookId = lookup.getKey();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                Map<String, Object> book = lookup.getValue().get(remaining, TimeUnit.NANOSECONDS);
+                if (book == null) {
+                    failures.add(bookId + ": not found");
+                } else {
+                    books.put(bookId, book);
+                }
+            } catch (ExecutionException e) {
+                failures.add(bookId + ": " + e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                // Lookups are shared with other orders through the cache, so they are left running
+                failures.add(bookId + ": timed out after " + enrichmentTimeoutMs + " ms");
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new RuntimeException("Lookup failed for " + failures.size() + " of " + bookIds.size() + " books " + failures);
+        }
+        return books;
+    }
 }
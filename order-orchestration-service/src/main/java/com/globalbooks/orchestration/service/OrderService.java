@@ -21,7 +21,11 @@ public class OrderService {
     @Value("${services.orders.url}")
     private String ordersServiceUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    public OrderService(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
 
     @ServiceActivator
     public Message<?> createOrder(Message<?> message) {
@@ -0,0 +1,43 @@
+package com.globalbooks.orchestration.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+/**
+ * REST client for order lookups in orders-service.
+ */
+@Component
+public class OrderStatusClient {
+
+    @Value("${services.orders.url}")
+    private String ordersServiceUrl;
+
+    private final RestTemplate restTemplate;
+
+    public OrderStatusClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Fetches an order, or returns null if orders-service does not know the id.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> findOrder(String orderId) {
+        long id;
+        try {
+            id = Long.parseLong(orderId.trim());
+        } catch (NumberFormatException e) {
+            // Order ids are numeric; anything else cannot exist
+            return null;
+        }
+        try {
+            return restTemplate.getForObject(ordersServiceUrl + "/orders/{id}", Map.class, id);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.globalbooks.orchestration.service;
+
+import com.globalbooks.orchestration.channel.OrderIntakeMetrics;
+import com.globalbooks.orchestration.channel.OrderIntakeRejectedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends orders into the integration flow for the REST and SOAP front ends. When the input
+ * channel has no room it rejects the order with {@link OrderIntakeRejectedException}, carrying
+ * the configured status (429 or 503) and Retry-After, so both front ends back off alike.
+ */
+@Service
+public class OrderSubmissionService {
+
+    private final MessageChannel orderInputChannel;
+    private final OrderIntakeMetrics orderIntakeMetrics;
+
+    @Value("${orchestration.input-channel.send-timeout-ms:0}")
+    private long sendTimeoutMs;
+
+    @Value("${orchestration.input-channel.reject-status:429}")
+    private int rejectStatus;
+
+    @Value("${orchestration.input-channel.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    public OrderSubmissionService(MessageChannel orderInputChannel, OrderIntakeMetrics orderIntakeMetrics) {
+        this.orderInputChannel = orderInputChannel;
+        this.orderIntakeMetrics = orderIntakeMetrics;
+    }
+
+    /**
+     * Submits an order for a caller its front end has already authenticated; userId and
+     * username are null for anonymous orders. The authorization value, if any, is passed on to
+     * the downstream services.
+     */
+    public Map<String, Object> submit(Map<String, Object> orderRequest, String userId, String username,
+                                      String authorization) {
+        // Identity comes only from the authenticated caller, never from the request body
+        orderRequest.remove("userId");
+        orderRequest.remove("username");
+        if (userId != null) {
+            orderRequest.put("userId", userId);
+            orderRequest.put("username", username);
+        }
+
+        try {
+            // Build the response first: in async modes the flow may already be enriching the payload
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("message", "Order submitted for processing");
+            response.put("bookId", orderRequest.get("bookId"));
+            response.put("customerId", orderRequest.get("customerId"));
+            response.put("quantity", orderRequest.get("quantity"));
+
+            boolean sent = orderInputChannel.send(MessageBuilder
+                .withPayload(orderRequest)
+                .setHeader("Authorization", authorization)
+                .build(), sendTimeoutMs);
+            if (!sent) {
+                orderIntakeMetrics.recordRejected();
+                throw new OrderIntakeRejectedException("Order intake queue is full, retry later",
+                        rejectStatus, retryAfterSeconds);
+            }
+            return response;
+
+        } catch (OrderIntakeRejectedException e) {
+            throw e;
+        } catch (MessageDeliveryException e) {
+            if (e.getMostSpecificCause() instanceof RejectedExecutionException) {
+                orderIntakeMetrics.recordRejected();
+                throw new OrderIntakeRejectedException("Order processing capacity exhausted, retry later",
+                        rejectStatus, retryAfterSeconds, e);
+            }
+            throw new RuntimeException("Order processing failed: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Order processing failed: " + e.getMessage(), e);
+        }
+    }
+}
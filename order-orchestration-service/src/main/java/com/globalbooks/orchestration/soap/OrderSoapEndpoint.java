@@ -1,96 +1,94 @@
 package com.globalbooks.orchestration.soap;
 
-import com.globalbooks.orchestration.controller.OrderOrchestrationController;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import com.globalbooks.common.security.UsernameTokenInterceptor;
+import com.globalbooks.orchestration.channel.OrderIntakeRejectedException;
+import com.globalbooks.orchestration.generated.GetOrderStatusRequest;
+import com.globalbooks.orchestration.generated.GetOrderStatusResponse;
+import com.globalbooks.orchestration.generated.ProcessOrderRequest;
+import com.globalbooks.orchestration.generated.ProcessOrderResponse;
+import com.globalbooks.orchestration.service.OrderStatusClient;
+import com.globalbooks.orchestration.service.OrderSubmissionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ws.context.MessageContext;
 import org.springframework.ws.server.endpoint.annotation.Endpoint;
 import org.springframework.ws.server.endpoint.annotation.PayloadRoot;
 import org.springframework.ws.server.endpoint.annotation.RequestPayload;
 import org.springframework.ws.server.endpoint.annotation.ResponsePayload;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * SOAP front end for order processing. Requests and responses are the JAXB classes generated
+ * from orders.xsd, so Spring-WS binds them directly with a JAXBContext it creates once per type.
+ */
 @Endpoint
-@Component
 public class OrderSoapEndpoint {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderSoapEndpoint.class);
+
     private static final String NAMESPACE_URI = "http://globalbooks.com/orders";
 
-    @Autowired
-    private OrderOrchestrationController orderController;
+    private final OrderSubmissionService orderSubmissionService;
+    private final OrderStatusClient orderStatusClient;
+
+    public OrderSoapEndpoint(OrderSubmissionService orderSubmissionService, OrderStatusClient orderStatusClient) {
+        this.orderSubmissionService = orderSubmissionService;
+        this.orderStatusClient = orderStatusClient;
+    }
 
     @PayloadRoot(namespace = NAMESPACE_URI, localPart = "ProcessOrderRequest")
     @ResponsePayload
-    public Element processOrder(@RequestPayload Element request) throws Exception {
-        
-        System.out.println("SOAP request received: " + request.getNodeName());
-        
-        // Extract values from SOAP request
-        String customerId = getTextContent(request, "customerId");
-        String bookId = getTextContent(request, "bookId");
-        String quantityStr = getTextContent(request, "quantity");
-        
-        System.out.println("Extracted values: customerId=" + customerId + ", bookId=" + bookId + ", quantity=" + quantityStr);
-        
-        // Create order request map
+    public ProcessOrderResponse processOrder(@RequestPayload ProcessOrderRequest request, MessageContext messageContext) {
+        logger.debug("SOAP order: customerId={}, bookId={}, quantity={}",
+                request.getCustomerId(), request.getBookId(), request.getQuantity());
+
         Map<String, Object> orderRequest = new HashMap<>();
-        orderRequest.put("customerId", customerId);
-        orderRequest.put("bookId", bookId);
-        orderRequest.put("quantity", quantityStr.isEmpty() ? 1 : Integer.parseInt(quantityStr));
-        
-        // Call existing order processing
-        Map<String, Object> result;
+        orderRequest.put("customerId", request.getCustomerId());
+        orderRequest.put("bookId", request.getBookId());
+        orderRequest.put("quantity", request.getQuantity() > 0 ? request.getQuantity() : 1);
+
+        ProcessOrderResponse response = new ProcessOrderResponse();
         try {
-            result = orderController.processOrder(orderRequest, "Bearer SOAP-CLIENT-TOKEN");
+            // SOAP callers are authenticated by the WS-Security interceptor, not by a bearer token
+            String principal = (String) messageContext.getProperty(UsernameTokenInterceptor.PRINCIPAL_PROPERTY);
+            Map<String, Object> result = orderSubmissionService.submit(orderRequest, principal, principal, null);
+            response.setOrderId(result.get("orderId") != null ? String.valueOf(result.get("orderId")) : "GENERATED");
+            response.setStatus(String.valueOf(result.get("status")));
+            response.setMessage(String.valueOf(result.get("message")));
+        } catch (OrderIntakeRejectedException e) {
+            // Same back-pressure as REST: the order was not taken and may be sent again later
+            response.setOrderId("REJECTED");
+            response.setStatus("REJECTED");
+            response.setMessage(e.getMessage() + " (retry after " + e.getRetryAfterSeconds() + "s)");
         } catch (Exception e) {
-            result = new HashMap<>();
-            result.put("status", "FAILED");
-            result.put("message", "Order processing failed: " + e.getMessage());
-            result.put("orderId", "ERROR");
+            response.setOrderId("ERROR");
+            response.setStatus("FAILED");
+            response.setMessage("Order processing failed: " + e.getMessage());
         }
-        
-        // Create SOAP response
-        return createResponse(result);
+        return response;
     }
 
-    private String getTextContent(Element parent, String tagName) {
-        // Try first with namespace
-        Node node = parent.getElementsByTagNameNS(NAMESPACE_URI, tagName).item(0);
-        if (node == null) {
-            // Try without namespace
-            node = parent.getElementsByTagName(tagName).item(0);
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "GetOrderStatusRequest")
+    @ResponsePayload
+    public GetOrderStatusResponse getOrderStatus(@RequestPayload GetOrderStatusRequest request) {
+        GetOrderStatusResponse response = new GetOrderStatusResponse();
+        response.setOrderId(request.getOrderId());
+        try {
+            Map<String, Object> order = request.getOrderId() == null ? null : orderStatusClient.findOrder(request.getOrderId());
+            if (order == null) {
+                response.setStatus("NOT_FOUND");
+                response.setMessage("No order with id " + request.getOrderId());
+            } else {
+                // CREATED, PAID or SHIPPED, as tracked by orders-service
+                response.setStatus(String.valueOf(order.get("state")));
+                response.setMessage("Order " + request.getOrderId() + " is " + order.get("state"));
+            }
+        } catch (Exception e) {
+            response.setStatus("UNAVAILABLE");
+            response.setMessage("Order status lookup failed: " + e.getMessage());
         }
-        String content = node != null ? node.getTextContent() : "";
-        System.out.println("getTextContent for " + tagName + ": '" + content + "'");
-        return content;
-    }
-
-    private Element createResponse(Map<String, Object> result) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.newDocument();
-        
-        Element response = doc.createElementNS(NAMESPACE_URI, "ProcessOrderResponse");
-        
-        Element orderIdElement = doc.createElement("orderId");
-        orderIdElement.setTextContent(result.get("orderId") != null ? String.valueOf(result.get("orderId")) : "GENERATED");
-        response.appendChild(orderIdElement);
-        
-        Element statusElement = doc.createElement("status");
-        statusElement.setTextContent(String.valueOf(result.get("status")));
-        response.appendChild(statusElement);
-        
-        Element messageElement = doc.createElement("message");
-        messageElement.setTextContent(String.valueOf(result.get("message")));
-        response.appendChild(messageElement);
-        
         return response;
     }
 }
@@ -1,6 +1,8 @@
 package com.globalbooks.orders.config;
 
+import com.globalbooks.common.messaging.BatchListenerFactories;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
@@ -33,4 +35,21 @@ public class RabbitConfig {
     public Queue shippingConfirmQueue() {
         return new Queue("shippingconfirm.queue", true);
     }
+
+    // Listener container factories, one per queue so each can be scaled on its own
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory orderQueueListenerFactory(BatchListenerFactories batchListenerFactories) {
+        return batchListenerFactories.create("order-queue", 50, 20);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory paymentConfirmListenerFactory(BatchListenerFactories batchListenerFactories) {
+        return batchListenerFactories.create("paymentconfirm-queue", 50, 20);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory shippingConfirmListenerFactory(BatchListenerFactories batchListenerFactories) {
+        return batchListenerFactories.create("shippingconfirm-queue", 50, 20);
+    }
 }
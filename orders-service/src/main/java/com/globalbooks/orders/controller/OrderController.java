@@ -1,20 +1,38 @@
 package com.globalbooks.orders.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.globalbooks.orders.model.Order;
+import com.globalbooks.orders.model.Page;
+import com.globalbooks.orders.repository.OrderFilter;
 import com.globalbooks.orders.repository.OrderRepository;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Rows fetched from the repository per step while streaming or listing everything
+    private static final int STREAM_CHUNK = 500;
+
     private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(OrderRepository orderRepository) {
+    public OrderController(OrderRepository orderRepository, ObjectMapper objectMapper) {
         this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -32,8 +50,105 @@ public class OrderController {
         return ResponseEntity.ok(order);
     }
 
+    /**
+     * Without cursor or limit, returns every matching order as a JSON array, as this endpoint always
+     * has. Passing either opts in to paging, and the response becomes {items, nextCursor}.
+     */
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        return ResponseEntity.ok(orderRepository.findAll());
+    public ResponseEntity<?> getOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        OrderFilter filter = new OrderFilter(customerId, status, from, to);
+        if (cursor == null && limit == null) {
+            List<Order> orders = new ArrayList<>();
+            Long after = null;
+            do {
+                Page<Order> page = orderRepository.findPage(filter, after, STREAM_CHUNK);
+                orders.addAll(page.getItems());
+                after = page.getNextCursor() == null ? null : Long.valueOf(page.getNextCursor());
+            } while (after != null);
+            return ResponseEntity.ok(orders);
+        }
+        int pageSize = checkLimit(limit != null ? limit : DEFAULT_PAGE_SIZE);
+        return ResponseEntity.ok(orderRepository.findPage(filter, parseCursor(cursor), pageSize));
+    }
+
+    // Index-backed lookups: each page costs O(page size), whatever the number of orders
+
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<Page<Order>> getOrdersByCustomer(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        return ResponseEntity.ok(orderRepository.findByCustomerId(customerId, parseCursor(cursor), checkLimit(limit)));
+    }
+
+    // PENDING selects orders that are not paid yet
+    @GetMapping("/payment-status/{status}")
+    public ResponseEntity<Page<Order>> getOrdersByPaymentStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        return ResponseEntity.ok(orderRepository.findByPaymentStatus(status, parseCursor(cursor), checkLimit(limit)));
+    }
+
+    @GetMapping("/shipping-status/{status}")
+    public ResponseEntity<Page<Order>> getOrdersByShippingStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        return ResponseEntity.ok(orderRepository.findByShippingStatus(status, parseCursor(cursor), checkLimit(limit)));
+    }
+
+    /**
+     * Streams every matching order as one JSON object per line. Orders are fetched a chunk at
+     * a time and written straight to the response, so memory use does not grow with the result.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        OrderFilter filter = new OrderFilter(customerId, status, from, to);
+        Long start = parseCursor(cursor);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            Long after = start;
+            do {
+                Page<Order> page = orderRepository.findPage(filter, after, STREAM_CHUNK);
+                for (Order order : page.getItems()) {
+                    generator.writeObject(order);
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                after = page.getNextCursor() == null ? null : Long.valueOf(page.getNextCursor());
+            } while (after != null);
+        };
+        return ResponseEntity.ok().header("Content-Type", NDJSON).body(body);
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.globalbooks.orders.model;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -9,6 +10,12 @@ public class Order {
     private List<String> bookIsbns;
     private String customerId;
     private Map<String, Object> bookDetails; // Maps ISBN to book details
+    private Instant createdAt;
+    private OrderState state = OrderState.CREATED;
+    // Incremented on every state change; see withState
+    private long version;
+    // Id of the order.queue message that created the order, so its redelivery finds it again
+    private String sourceMessageId;
 
     public Order() {
     }
@@ -57,4 +64,49 @@ public class Order {
     public void setBookDetails(Map<String, Object> bookDetails) {
         this.bookDetails = bookDetails;
     }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OrderState getState() {
+        return state;
+    }
+
+    public void setState(OrderState state) {
+        this.state = state;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getSourceMessageId() {
+        return sourceMessageId;
+    }
+
+    public void setSourceMessageId(String sourceMessageId) {
+        this.sourceMessageId = sourceMessageId;
+    }
+
+    /**
+     * Returns a copy of this order in the given state with the next version. A stored order is
+     * never modified in place; it is replaced by its successor with a compare-and-set.
+     */
+    public Order withState(OrderState state) {
+        Order next = new Order(id, bookIsbns, customerId, bookDetails);
+        next.createdAt = createdAt;
+        next.state = state;
+        next.version = version + 1;
+        next.sourceMessageId = sourceMessageId;
+        return next;
+    }
 }
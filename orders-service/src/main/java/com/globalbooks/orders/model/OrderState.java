@@ -0,0 +1,28 @@
+package com.globalbooks.orders.model;
+
+/**
+ * Lifecycle of an order. States only move forward. Shipping is only started once a payment
+ * has succeeded, so a shipping confirmation that overtakes its payment confirmation takes a
+ * CREATED order straight to SHIPPED, and the late payment confirmation is then ignored.
+ */
+public enum OrderState {
+
+    CREATED,
+    PAID,
+    SHIPPED;
+
+    public static final String PENDING = "PENDING";
+
+    // The state after a confirmation of target: unchanged when target is a repeat or already overtaken
+    public OrderState advanceTo(OrderState target) {
+        return target.compareTo(this) > 0 ? target : this;
+    }
+
+    public String paymentStatus() {
+        return compareTo(PAID) >= 0 ? PAID.name() : PENDING;
+    }
+
+    public String shippingStatus() {
+        return this == SHIPPED ? SHIPPED.name() : PENDING;
+    }
+}
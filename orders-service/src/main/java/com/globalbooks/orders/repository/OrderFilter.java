@@ -0,0 +1,48 @@
+package com.globalbooks.orders.repository;
+
+import com.globalbooks.orders.model.Order;
+import com.globalbooks.orders.model.OrderState;
+
+import java.time.Instant;
+
+/**
+ * Conditions applied inside the repository while it walks orders, so rows that do not match
+ * are never copied out. Null fields match everything.
+ */
+public class OrderFilter {
+
+    private final String customerId;
+    private final String status;
+    private final Instant from;
+    private final Instant to;
+
+    public OrderFilter(String customerId, String status, Instant from, Instant to) {
+        this.customerId = customerId;
+        this.status = status;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public boolean matches(Order order) {
+        if (customerId != null && !customerId.equals(order.getCustomerId())) {
+            return false;
+        }
+        if (from != null || to != null) {
+            Instant createdAt = order.getCreatedAt();
+            if (createdAt == null || (from != null && createdAt.isBefore(from)) || (to != null && !createdAt.isBefore(to))) {
+                return false;
+            }
+        }
+        return status == null || hasStatus(order);
+    }
+
+    // A status matches the order's state or its derived payment/shipping status, so PAID includes shipped orders
+    private boolean hasStatus(Order order) {
+        OrderState state = order.getState();
+        return status.equals(state.name()) || status.equals(state.paymentStatus()) || status.equals(state.shippingStatus());
+    }
+}
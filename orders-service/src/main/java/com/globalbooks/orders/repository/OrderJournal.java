@@ -0,0 +1,470 @@
+package com.globalbooks.orders.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.globalbooks.orders.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only storage for orders.
+ *
+ * Every save is appended to the current log segment as a length- and CRC-framed JSON record.
+ * A single writer thread drains all pending saves, writes them with one call and fsyncs once,
+ * so concurrent callers share the cost of a sync (group commit). After snapshotEvery records
+ * the writer rolls to a new segment and a background thread writes a snapshot of the latest
+ * journaled version of each order; segments the snapshot covers are then deleted. Versions
+ * that are visible to readers but not yet written, and may still be reverted, never reach a
+ * snapshot. Recovery loads the snapshot and replays only the segments written after it,
+ * truncating a torn record at the tail.
+ */
+class OrderJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderJournal.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4F524453; // "ORDS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "orders.snapshot";
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final boolean fsync;
+    private final long snapshotEvery;
+    private final int maxGroupSize;
+
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+    private Thread writer;
+    private volatile boolean running;
+
+    // Owned by the writer thread once started
+    private FileChannel segment;
+    private long segmentNumber;
+    private long recordsSinceSnapshot;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(256 * 1024);
+
+    // Latest version of each order that is on disk; the writer thread updates it after each commit
+    private final Map<Long, Order> journaled = new ConcurrentHashMap<>();
+    private Consumer<Collection<Order>> applier;
+    private AtomicLong idCounter;
+
+    OrderJournal(Path directory, boolean fsync, long snapshotEvery, int maxGroupSize) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotEvery = snapshotEvery;
+        this.maxGroupSize = maxGroupSize;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "order-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rebuilds orders and the id sequence from disk, then starts the writer on a fresh segment.
+     * Recovered records, and later every record once it is durable, are handed to applier.
+     */
+    void open(Consumer<Collection<Order>> applier, AtomicLong idCounter) throws IOException {
+        this.applier = applier;
+        this.idCounter = idCounter;
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE + ".tmp"));
+
+        long started = System.nanoTime();
+        long firstSegment = loadSnapshot();
+        int snapshotCount = journaled.size();
+
+        TreeMap<Long, Path> segments = listSegments();
+        long replayed = 0;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(firstSegment).entrySet()) {
+            boolean last = entry.getKey().equals(segments.lastKey());
+            replayed += replaySegment(entry.getValue(), last);
+        }
+        logger.info("Recovered {} orders ({} from snapshot, {} log records replayed) in {} ms",
+                journaled.size(), snapshotCount, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        // Replayed records still only live in old segments; counting them schedules a snapshot soon
+        recordsSinceSnapshot = replayed;
+        segmentNumber = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.lastKey() + 1);
+        openSegment();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "order-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Serializes the orders on the caller's thread and queues them for the next group commit.
+     * The future completes once they are on disk and visible in the order map.
+     */
+    CompletableFuture<Void> append(Collection<Order> batch) {
+        List<byte[]> records = new ArrayList<>(batch.size());
+        for (Order order : batch) {
+            records.add(encode(order));
+        }
+        PendingWrite write = new PendingWrite(new ArrayList<>(batch), records);
+        if (!running) {
+            write.done.completeExceptionally(new IllegalStateException("Order journal is closed"));
+            return write.done;
+        }
+        queue.add(write);
+        return write.done;
+    }
+
+    /**
+     * Stops the writer after it has flushed what is queued and writes a final snapshot,
+     * so the next start has no log to replay.
+     */
+    void close() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        failQueued();
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            if (segment != null) {
+                segment.close();
+            }
+            segmentNumber++;
+            writeSnapshot(segmentNumber);
+        } catch (Exception e) {
+            logger.warn("Final order snapshot failed, the log will be replayed on next start: {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                group.clear();
+            }
+        }
+        failQueued();
+    }
+
+    // Anything queued after close() will never be written
+    private void failQueued() {
+        PendingWrite late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IllegalStateException("Order journal is closed"));
+        }
+    }
+
+    private void commit(List<PendingWrite> group) {
+        int recordCount = 0;
+        try {
+            int size = 0;
+            for (PendingWrite write : group) {
+                for (byte[] record : write.records) {
+                    size += RECORD_HEADER + record.length;
+                }
+            }
+            ByteBuffer buffer = writeBuffer(size);
+            for (PendingWrite write : group) {
+                for (byte[] record : write.records) {
+                    frame(buffer, record);
+                    recordCount++;
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (fsync) {
+                segment.force(false);
+            }
+        } catch (Exception e) {
+            logger.error("Writing {} order record(s) failed: {}", recordCount, e.getMessage(), e);
+            group.forEach(write -> write.done.completeExceptionally(e));
+            // Leave any partial write at the tail of a closed segment so later records stay readable
+            try {
+                segment.close();
+                segmentNumber++;
+                openSegment();
+            } catch (IOException rollFailure) {
+                logger.error("Could not open a new order log segment: {}", rollFailure.getMessage());
+            }
+            return;
+        }
+
+        // Durable: publish to readers, then release the callers
+        for (PendingWrite write : group) {
+            write.orders.forEach(this::journaled);
+            applier.accept(write.orders);
+            write.done.complete(null);
+        }
+
+        recordsSinceSnapshot += recordCount;
+        if (recordsSinceSnapshot >= snapshotEvery && snapshotRunning.compareAndSet(false, true)) {
+            rollAndSnapshot();
+        }
+    }
+
+    private void rollAndSnapshot() {
+        try {
+            // Everything in segments below the new one is already in the journaled view the snapshot copies
+            segment.close();
+            segmentNumber++;
+            openSegment();
+            recordsSinceSnapshot = 0;
+            long coveredUpTo = segmentNumber;
+            snapshotExecutor.execute(() -> {
+                try {
+                    writeSnapshot(coveredUpTo);
+                } catch (Exception e) {
+                    logger.error("Order snapshot failed: {}", e.getMessage(), e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        } catch (Exception e) {
+            snapshotRunning.set(false);
+            logger.error("Rolling the order log failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void writeSnapshot(long firstSegmentAfter) throws IOException {
+        long started = System.nanoTime();
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        List<Order> live = new ArrayList<>(journaled.values());
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(28);
+            header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION)
+                    .putLong(firstSegmentAfter).putLong(idCounter.get()).putInt(live.size());
+            header.flip();
+            out.write(header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+            for (Order order : live) {
+                byte[] record = encode(order);
+                if (buffer.remaining() < RECORD_HEADER + record.length) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                    if (buffer.capacity() < RECORD_HEADER + record.length) {
+                        buffer = ByteBuffer.allocate(RECORD_HEADER + record.length);
+                    }
+                }
+                frame(buffer, record);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Map.Entry<Long, Path> entry : listSegments().headMap(firstSegmentAfter).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+        }
+        logger.info("Wrote order snapshot of {} orders in {} ms", live.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // Returns the first segment not covered by the snapshot
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = open(file)) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unrecognised order snapshot " + file);
+            }
+            long firstSegment = in.readLong();
+            idCounter.set(Math.max(idCounter.get(), in.readLong()));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Order order = decode(readRecord(in));
+                if (order == null) {
+                    throw new IOException("Order snapshot " + file + " is corrupt at record " + i);
+                }
+                apply(order);
+            }
+            return firstSegment;
+        }
+    }
+
+    private long replaySegment(Path file, boolean last) throws IOException {
+        long count = 0;
+        long validEnd = 0;
+        try (DataInputStream in = open(file)) {
+            byte[] record;
+            Order order;
+            while ((record = readRecord(in)) != null && (order = decode(record)) != null) {
+                apply(order);
+                validEnd += RECORD_HEADER + record.length;
+                count++;
+            }
+        }
+        if (validEnd < Files.size(file)) {
+            if (last) {
+                // A crash mid-write leaves a partial record; nothing after it was acknowledged
+                logger.warn("Truncating torn tail of {} at byte {}", file.getFileName(), validEnd);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(validEnd);
+                }
+            } else {
+                logger.error("Order log {} is corrupt after byte {}; remaining records skipped", file.getFileName(), validEnd);
+            }
+        }
+        return count;
+    }
+
+    // Streamed rather than mapped, so a file of any size can be read and then truncated
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 256 * 1024));
+    }
+
+    // Returns the body of the next framed record, or null at the end of the file or a damaged record
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            return crc(record) == crc ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private Order decode(byte[] record) {
+        if (record == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(record, Order.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void apply(Order order) {
+        journaled(order);
+        applier.accept(Collections.singletonList(order));
+    }
+
+    // Keeps the newest version, as the order map does
+    private void journaled(Order order) {
+        journaled.merge(order.getId(), order,
+                (current, saved) -> current.getVersion() > saved.getVersion() ? current : saved);
+    }
+
+    private byte[] encode(Order order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Order " + order.getId() + " could not be serialized", e);
+        }
+    }
+
+    private static void frame(ByteBuffer buffer, byte[] record) {
+        buffer.putInt(record.length).putInt(crc(record)).put(record);
+    }
+
+    private static int crc(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    private ByteBuffer writeBuffer(int size) {
+        if (writeBuffer.capacity() < size) {
+            writeBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+        }
+        writeBuffer.clear();
+        return writeBuffer;
+    }
+
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    segments.put(Long.parseLong(number), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file {} in order log directory", name);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static final class PendingWrite {
+        final List<Order> orders;
+        final List<byte[]> records;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(List<Order> orders, List<byte[]> records) {
+            this.orders = orders;
+            this.records = records;
+        }
+    }
+}
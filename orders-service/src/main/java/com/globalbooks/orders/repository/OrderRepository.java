@@ -1,33 +1,282 @@
 package com.globalbooks.orders.repository;
 
 import com.globalbooks.orders.model.Order;
+import com.globalbooks.orders.model.OrderState;
+import com.globalbooks.orders.model.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Orders are served from memory. With orders.storage.durable=true (the default) every save is
+ * first written to an {@link OrderJournal} and only returns once it is on disk, so orders and
+ * the id sequence survive a restart.
+ *
+ * Secondary indexes on customerId, paymentStatus and shippingStatus map each key to the sorted
+ * ids of its orders. They change under the same write lock that publishes a saved order, so an
+ * index query never sees an order under a key it no longer has.
+ *
+ * A stored order changes state only through {@link #compareAndSet}, which swaps in its next
+ * version without locking. Saving publishes a version only if the map does not already hold a
+ * newer one, so journal writes that complete out of order cannot roll an order back.
+ */
 @Repository
 public class OrderRepository {
 
-    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    // Sorted by id so listings can resume after a cursor without a full copy
+    private final ConcurrentSkipListMap<Long, Order> orders = new ConcurrentSkipListMap<>();
     private final AtomicLong idCounter = new AtomicLong();
+    private final OrderJournal journal;
 
-    public Order save(Order order) {
-        if (order.getId() == null) {
-            order.setId(idCounter.incrementAndGet());
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexKeys> indexedKeys = new HashMap<>();
+    private final Map<String, NavigableSet<Long>> byCustomer = new HashMap<>();
+    private final Map<String, NavigableSet<Long>> byPaymentStatus = new HashMap<>();
+    private final Map<String, NavigableSet<Long>> byShippingStatus = new HashMap<>();
+    // Recent order.queue message id -> id of the order it created
+    private final SourceMessageIndex bySourceMessageId;
+
+    public OrderRepository(@Value("${orders.storage.durable:true}") boolean durable,
+                           @Value("${orders.storage.dir:data/orders}") String directory,
+                           @Value("${orders.storage.fsync:true}") boolean fsync,
+                           @Value("${orders.storage.snapshot-every:100000}") long snapshotEvery,
+                           @Value("${orders.storage.max-group-size:4096}") int maxGroupSize,
+                           @Value("${orders.source-message.window-ms:600000}") long sourceMessageWindowMs,
+                           @Value("${orders.source-message.max-keys:200000}") int sourceMessageMaxKeys) {
+        this.journal = durable ? new OrderJournal(Paths.get(directory), fsync, snapshotEvery, maxGroupSize) : null;
+        this.bySourceMessageId = new SourceMessageIndex(sourceMessageWindowMs, sourceMessageMaxKeys);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (journal != null) {
+            journal.open(this::apply, idCounter);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (journal != null) {
+            journal.close();
         }
-        orders.put(order.getId(), order);
+    }
+
+    public Order save(Order order) {
+        saveAll(Collections.singletonList(order));
         return order;
     }
 
+    public List<Order> saveAll(Collection<Order> batch) {
+        Instant now = Instant.now();
+        for (Order order : batch) {
+            if (order.getId() == null) {
+                order.setId(idCounter.incrementAndGet());
+                order.setState(OrderState.CREATED);
+                order.setVersion(0);
+            }
+            if (order.getCreatedAt() == null) {
+                order.setCreatedAt(now);
+            }
+        }
+        if (journal == null) {
+            apply(batch);
+        } else {
+            try {
+                // One group-committed write for the whole batch
+                journal.append(batch).join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Orders could not be persisted", e.getCause());
+            }
+        }
+        return new ArrayList<>(batch);
+    }
+
     public Order findById(Long id) {
         return orders.get(id);
     }
 
+    // The order created from the given order.queue message, or null if none was saved within the window
+    public Order findBySourceMessageId(String messageId) {
+        Long id = bySourceMessageId.get(messageId);
+        return id == null ? null : orders.get(id);
+    }
+
+    /**
+     * Replaces expected with updated, its next version, if expected is still the current version
+     * of the order. Callers that lose the race re-read and retry. The new version is visible at
+     * once but becomes durable only when it is passed to saveAll.
+     */
+    public boolean compareAndSet(Order expected, Order updated) {
+        if (!expected.getId().equals(updated.getId()) || updated.getVersion() != expected.getVersion() + 1) {
+            throw new IllegalArgumentException("Order " + updated.getId() + " v" + updated.getVersion()
+                    + " does not succeed v" + expected.getVersion());
+        }
+        // Order does not override equals, so this compares the stored instance by identity
+        return orders.replace(expected.getId(), expected, updated);
+    }
+
+    // Undoes a compareAndSet whose save failed, unless a later version has already replaced it
+    public void revert(Order updated, Order previous) {
+        if (orders.replace(updated.getId(), updated, previous)) {
+            apply(Collections.singletonList(previous));
+        }
+    }
+
+    /**
+     * Returns up to limit orders matching the filter with ids above afterId, in id order.
+     * The cursor of the returned page is the last id it contains.
+     */
+    public Page<Order> findPage(OrderFilter filter, Long afterId, int limit) {
+        if (filter.getCustomerId() != null) {
+            // Walk only this customer's orders
+            List<Order> items = new ArrayList<>(Math.min(limit, 1024));
+            Long after = afterId;
+            while (true) {
+                Page<Order> candidates = pageFromIndex(byCustomer, filter.getCustomerId(), after, limit);
+                for (Order order : candidates.getItems()) {
+                    if (filter.matches(order)) {
+                        items.add(order);
+                        if (items.size() == limit) {
+                            return new Page<>(items, String.valueOf(order.getId()));
+                        }
+                    }
+                }
+                if (candidates.getNextCursor() == null) {
+                    return new Page<>(items, null);
+                }
+                after = Long.valueOf(candidates.getNextCursor());
+            }
+        }
+
+        NavigableMap<Long, Order> tail = afterId == null ? orders : orders.tailMap(afterId, false);
+        List<Order> items = new ArrayList<>(Math.min(limit, 1024));
+        for (Order order : tail.values()) {
+            if (filter.matches(order)) {
+                items.add(order);
+                if (items.size() == limit) {
+                    return new Page<>(items, String.valueOf(order.getId()));
+                }
+            }
+        }
+        return new Page<>(items, null);
+    }
+
     public List<Order> findAll() {
         return new ArrayList<>(orders.values());
     }
+
+    public Page<Order> findByCustomerId(String customerId, Long afterId, int limit) {
+        return pageFromIndex(byCustomer, customerId, afterId, limit);
+    }
+
+    // Orders that are not paid yet are indexed under PENDING
+    public Page<Order> findByPaymentStatus(String status, Long afterId, int limit) {
+        return pageFromIndex(byPaymentStatus, status, afterId, limit);
+    }
+
+    // Orders that are not shipped yet are indexed under PENDING
+    public Page<Order> findByShippingStatus(String status, Long afterId, int limit) {
+        return pageFromIndex(byShippingStatus, status, afterId, limit);
+    }
+
+    // Reads only the ids in the requested page, so cost follows the result size
+    private Page<Order> pageFromIndex(Map<String, NavigableSet<Long>> index, String key, Long afterId, int limit) {
+        indexLock.readLock().lock();
+        try {
+            NavigableSet<Long> ids = index.get(key);
+            if (ids == null) {
+                return new Page<>(Collections.emptyList(), null);
+            }
+            Iterator<Long> it = (afterId == null ? ids : ids.tailSet(afterId, false)).iterator();
+            List<Order> items = new ArrayList<>(Math.min(limit, 1024));
+            while (it.hasNext() && items.size() < limit) {
+                items.add(orders.get(it.next()));
+            }
+            String next = it.hasNext() ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+            return new Page<>(items, next);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    // Publishes saved orders and moves their index entries in one step
+    private void apply(Collection<Order> batch) {
+        indexLock.writeLock().lock();
+        try {
+            for (Order order : batch) {
+                Long id = order.getId();
+                idCounter.accumulateAndGet(id, Math::max);
+                if (order.getSourceMessageId() != null) {
+                    bySourceMessageId.put(order.getSourceMessageId(), id);
+                }
+                Order published = orders.merge(id, order,
+                        (current, saved) -> current.getVersion() > saved.getVersion() ? current : saved);
+                if (published != order) {
+                    // A newer version is in flight; its own save moves the index entries
+                    continue;
+                }
+                IndexKeys next = IndexKeys.of(order);
+                IndexKeys previous = indexedKeys.put(id, next);
+                move(byCustomer, id, previous == null ? null : previous.customerId, next.customerId);
+                move(byPaymentStatus, id, previous == null ? null : previous.paymentStatus, next.paymentStatus);
+                move(byShippingStatus, id, previous == null ? null : previous.shippingStatus, next.shippingStatus);
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private static void move(Map<String, NavigableSet<Long>> index, Long id, String from, String to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        if (from != null) {
+            NavigableSet<Long> ids = index.get(from);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                index.remove(from);
+            }
+        }
+        if (to != null) {
+            index.computeIfAbsent(to, k -> new TreeSet<>()).add(id);
+        }
+    }
+
+    // The keys an order is currently indexed under, which may lag behind a version still being saved
+    private static final class IndexKeys {
+        final String customerId;
+        final String paymentStatus;
+        final String shippingStatus;
+
+        private IndexKeys(String customerId, String paymentStatus, String shippingStatus) {
+            this.customerId = customerId;
+            this.paymentStatus = paymentStatus;
+            this.shippingStatus = shippingStatus;
+        }
+
+        static IndexKeys of(Order order) {
+            OrderState state = order.getState();
+            return new IndexKeys(order.getCustomerId(), state.paymentStatus(), state.shippingStatus());
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package com.globalbooks.orders.repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maps recent order.queue message ids to the order each one created. Like
+ * {@link com.globalbooks.common.messaging.DeduplicationWindow}, ids go into a current generation
+ * that becomes the previous one once it is windowMs old or holds half of maxKeys, and the
+ * generation before that is dropped whole. A redelivery within the window finds its order;
+ * memory stays bounded however many orders the service has taken.
+ */
+class SourceMessageIndex {
+
+    private final long windowNanos;
+    private final long generationCapacity;
+    private final AtomicReference<Generations> generations;
+
+    SourceMessageIndex(long windowMs, int maxKeys) {
+        this.windowNanos = windowMs * 1_000_000L;
+        this.generationCapacity = Math.max(1, maxKeys / 2);
+        this.generations = new AtomicReference<>(new Generations(new ConcurrentHashMap<>(), System.nanoTime()));
+    }
+
+    // Keeps the first order recorded for a message id
+    void put(String messageId, Long orderId) {
+        Generations g = current();
+        if (!g.previous.containsKey(messageId)) {
+            g.current.putIfAbsent(messageId, orderId);
+        }
+    }
+
+    Long get(String messageId) {
+        Generations g = generations.get();
+        Long orderId = g.current.get(messageId);
+        return orderId != null ? orderId : g.previous.get(messageId);
+    }
+
+    private Generations current() {
+        Generations g = generations.get();
+        long now = System.nanoTime();
+        long age = now - g.started;
+        if (age >= windowNanos || g.current.mappingCount() >= generationCapacity) {
+            ConcurrentHashMap<String, Long> kept = age >= 2 * windowNanos ? new ConcurrentHashMap<>() : g.current;
+            generations.compareAndSet(g, new Generations(kept, now));
+            g = generations.get();
+        }
+        return g;
+    }
+
+    private static final class Generations {
+        final ConcurrentHashMap<String, Long> previous;
+        final ConcurrentHashMap<String, Long> current = new ConcurrentHashMap<>();
+        final long started;
+
+        Generations(ConcurrentHashMap<String, Long> previous, long started) {
+            this.previous = previous;
+            this.started = started;
+        }
+    }
+}
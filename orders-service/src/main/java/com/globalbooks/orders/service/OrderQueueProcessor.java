@@ -1,16 +1,28 @@
 package com.globalbooks.orders.service;
 
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
 import com.globalbooks.orders.model.Order;
+import com.globalbooks.orders.model.OrderState;
 import com.globalbooks.orders.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class OrderQueueProcessor {
@@ -21,43 +33,106 @@ public class OrderQueueProcessor {
     private OrderRepository orderRepository;
 
     @Autowired
-    private AmqpTemplate amqpTemplate;
+    private ConfirmedBatchPublisher publisher;
 
+    @Value("${rabbit.publisher.confirm-timeout-ms:5000}")
+    private long confirmWaitMs;
+
+    /**
+     * Saves a batch from order.queue with one repository write and sends each order to
+     * payment.queue. The batch is acked once the broker has confirmed the payment requests, or
+     * after confirmWaitMs at the latest: once orders are saved the batch is never requeued, and
+     * unconfirmed payment requests keep being re-sent on their own.
+     *
+     * Each order records the id of the message that created it. A redelivered message, say
+     * after a restart or a lost ack, therefore does not create a second order; if that order is
+     * still CREATED its payment request is sent again, which payments-service ignores if it has
+     * already charged the order.
+     */
     @SuppressWarnings("unchecked")
-    @RabbitListener(queues = "order.queue")
-    public void processOrderFromQueue(Map<String, Object> orderData) {
-        try {
-            logger.info("Processing order from order.queue: {}", orderData);
-
-            // Create new order with book details
-            Order order = new Order();
-            order.setCustomerId((String) orderData.get("userId"));
-            
-            // Extract book details from enriched catalog data
-            Map<String, Object> bookDetails = (Map<String, Object>) orderData.get("bookDetails");
-            if (bookDetails != null) {
-                order.setBookDetails(bookDetails);
+    @RabbitListener(queues = "order.queue", containerFactory = "orderQueueListenerFactory")
+    public void processOrdersFromQueue(List<Message<Map<String, Object>>> batch) {
+        logger.info("Processing {} order(s) from order.queue", batch.size());
+
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<Map<String, Object>> accepted = new ArrayList<>(batch.size());
+        List<Order> resend = new ArrayList<>();
+        List<Map<String, Object>> resendData = new ArrayList<>();
+        Set<String> messageIds = new HashSet<>();
+        for (Message<Map<String, Object>> message : batch) {
+            try {
+                Map<String, Object> orderData = message.getPayload();
+                String messageId = message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+                if (messageId != null) {
+                    Order existing = orderRepository.findBySourceMessageId(messageId);
+                    if (existing != null) {
+                        logger.info("Order {} already exists for message {}", existing.getId(), messageId);
+                        if (existing.getState() == OrderState.CREATED) {
+                            resend.add(existing);
+                            resendData.add(orderData);
+                        }
+                        continue;
+                    }
+                    if (!messageIds.add(messageId)) {
+                        continue;
+                    }
+                }
+
+                // Create new order with book details
+                Order order = new Order();
+                order.setCustomerId((String) orderData.get("userId"));
+                order.setSourceMessageId(messageId);
+
+                // Extract book details from enriched catalog data
+                Map<String, Object> bookDetails = (Map<String, Object>) orderData.get("bookDetails");
+                if (bookDetails != null) {
+                    order.setBookDetails(bookDetails);
+                }
+                orders.add(order);
+                accepted.add(orderData);
+            } catch (Exception e) {
+                logger.error("Error reading order from queue: {}", e.getMessage(), e);
+            }
+        }
+
+        // Save the whole batch in one repository write. If this fails nothing has been sent yet,
+        // so the exception lets the container requeue the batch.
+        orderRepository.saveAll(orders);
+        logger.info("Saved {} order(s)", orders.size());
+
+        orders.addAll(resend);
+        accepted.addAll(resendData);
+        List<CompletableFuture<Void>> sent = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order savedOrder = orders.get(i);
+            Map<String, Object> orderData = accepted.get(i);
+            try {
+                // Create payment message with order and book details
+                Map<String, Object> paymentMessage = new HashMap<>();
+                paymentMessage.put("orderId", savedOrder.getId());
+                paymentMessage.put("customerId", savedOrder.getCustomerId());
+                paymentMessage.put("bookDetails", savedOrder.getBookDetails());
+                paymentMessage.put("amount", calculateAmount(savedOrder.getBookDetails()));
+                paymentMessage.put("shippingAddress", orderData.get("shippingAddress"));
+                paymentMessage.put("paymentMethod", orderData.get("paymentMethod"));
+
+                // Send to payment.queue
+                sent.add(publisher.publishUntilConfirmed("payment.queue", paymentMessage));
+                logger.debug("Queued order {} for payment.queue", savedOrder.getId());
+            } catch (Exception e) {
+                logger.error("Error sending order {} to payment.queue: {}", savedOrder.getId(), e.getMessage(), e);
             }
+        }
 
-            // Save order to database
-            Order savedOrder = orderRepository.save(order);
-            logger.info("Order saved with ID: {}", savedOrder.getId());
-
-            // Create payment message with order and book details
-            Map<String, Object> paymentMessage = new HashMap<>();
-            paymentMessage.put("orderId", savedOrder.getId());
-            paymentMessage.put("customerId", savedOrder.getCustomerId());
-            paymentMessage.put("bookDetails", savedOrder.getBookDetails());
-            paymentMessage.put("amount", calculateAmount(savedOrder.getBookDetails()));
-            paymentMessage.put("shippingAddress", orderData.get("shippingAddress"));
-            paymentMessage.put("paymentMethod", orderData.get("paymentMethod"));
-
-            // Send to payment.queue
-            amqpTemplate.convertAndSend("payment.queue", paymentMessage);
-            logger.info("Sent order to payment.queue: {}", paymentMessage);
-
-        } catch (Exception e) {
-            logger.error("Error processing order from queue: {}", e.getMessage(), e);
+        // Hold the ack until the broker has the payment requests, which paces intake to the broker
+        try {
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).get(confirmWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Payment requests for {} order(s) not confirmed yet, still re-sending", orders.size());
+        } catch (ExecutionException e) {
+            logger.error("Payment requests were not confirmed before shutdown: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -1,13 +1,18 @@
 package com.globalbooks.orders.service;
 
 import com.globalbooks.orders.model.Order;
+import com.globalbooks.orders.model.OrderState;
 import com.globalbooks.orders.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -18,58 +23,76 @@ public class OrderStatusProcessor {
     @Autowired
     private OrderRepository orderRepository;
 
-    @RabbitListener(queues = "paymentconfirm.queue")
-    public void processPaymentConfirmation(Map<String, Object> paymentConfirmation) {
-        try {
-            logger.info("Received payment confirmation: {}", paymentConfirmation);
-            
-            Long orderId = ((Number) paymentConfirmation.get("orderId")).longValue();
-            String status = (String) paymentConfirmation.get("status");
-            
-            if ("COMPLETED".equals(status)) {
-                // Update order status to PAID
-                Order order = orderRepository.findById(orderId);
+    @RabbitListener(queues = "paymentconfirm.queue", containerFactory = "paymentConfirmListenerFactory")
+    public void processPaymentConfirmations(List<Map<String, Object>> paymentConfirmations) {
+        logger.info("Received {} payment confirmation(s)", paymentConfirmations.size());
+        applyConfirmations(paymentConfirmations, "COMPLETED", OrderState.PAID);
+    }
+
+    @RabbitListener(queues = "shippingconfirm.queue", containerFactory = "shippingConfirmListenerFactory")
+    public void processShippingConfirmations(List<Map<String, Object>> shippingConfirmations) {
+        logger.info("Received {} shipping confirmation(s)", shippingConfirmations.size());
+        applyConfirmations(shippingConfirmations, "SHIPPED", OrderState.SHIPPED);
+    }
+
+    /**
+     * Advances every confirmed order towards target, then journals the changed orders with a
+     * single saveAll. Repeated and overtaken confirmations change nothing and are dropped. If the
+     * save fails the changes are reverted and the batch is requeued.
+     */
+    private void applyConfirmations(List<Map<String, Object>> confirmations, String expectedStatus, OrderState target) {
+        Map<Long, Order> previous = new HashMap<>();
+        Map<Long, Order> updated = new LinkedHashMap<>();
+        for (Map<String, Object> confirmation : confirmations) {
+            try {
+                Long orderId = ((Number) confirmation.get("orderId")).longValue();
+                String status = (String) confirmation.get("status");
+                if (!expectedStatus.equals(status)) {
+                    continue;
+                }
+
+                Order order = advance(orderId, target, previous);
                 if (order != null) {
-                    // Add a status field or use bookDetails to store status
-                    if (order.getBookDetails() == null) {
-                        order.setBookDetails(new java.util.HashMap<>());
-                    }
-                    order.getBookDetails().put("paymentStatus", "PAID");
-                    orderRepository.save(order);
-                    logger.info("Order {} status updated to PAID", orderId);
-                } else {
-                    logger.warn("Order {} not found for payment confirmation", orderId);
+                    updated.put(orderId, order);
                 }
+            } catch (Exception e) {
+                logger.error("Error processing confirmation {}: {}", confirmation, e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("Error processing payment confirmation: {}", e.getMessage(), e);
+        }
+
+        if (!updated.isEmpty()) {
+            try {
+                orderRepository.saveAll(updated.values());
+            } catch (RuntimeException e) {
+                updated.forEach((orderId, order) -> orderRepository.revert(order, previous.get(orderId)));
+                throw new AmqpException("Order state changes could not be persisted", e);
+            }
+            logger.info("Orders {} moved to {}", updated.keySet(), target);
         }
     }
 
-    @RabbitListener(queues = "shippingconfirm.queue")
-    public void processShippingConfirmation(Map<String, Object> shippingConfirmation) {
-        try {
-            logger.info("Received shipping confirmation: {}", shippingConfirmation);
-            
-            Long orderId = ((Number) shippingConfirmation.get("orderId")).longValue();
-            String status = (String) shippingConfirmation.get("status");
-            
-            if ("SHIPPED".equals(status)) {
-                // Update order status to SHIPPED
-                Order order = orderRepository.findById(orderId);
-                if (order != null) {
-                    if (order.getBookDetails() == null) {
-                        order.setBookDetails(new java.util.HashMap<>());
-                    }
-                    order.getBookDetails().put("shippingStatus", "SHIPPED");
-                    orderRepository.save(order);
-                    logger.info("Order {} status updated to SHIPPED", orderId);
-                } else {
-                    logger.warn("Order {} not found for shipping confirmation", orderId);
-                }
+    /**
+     * Moves one order to its next state with a compare-and-set on its current version, retrying
+     * when a concurrent consumer changed it first. Returns the new version, or null when the order
+     * does not exist or is already at or past target. The version it replaced goes into previous.
+     */
+    private Order advance(Long orderId, OrderState target, Map<Long, Order> previous) {
+        while (true) {
+            Order current = orderRepository.findById(orderId);
+            if (current == null) {
+                logger.warn("Order {} not found for {} confirmation", orderId, target);
+                return null;
+            }
+            OrderState next = current.getState().advanceTo(target);
+            if (next == current.getState()) {
+                logger.debug("Ignoring {} confirmation for order {} already {}", target, orderId, current.getState());
+                return null;
+            }
+            Order updated = current.withState(next);
+            if (orderRepository.compareAndSet(current, updated)) {
+                previous.putIfAbsent(orderId, current);
+                return updated;
             }
-        } catch (Exception e) {
-            logger.error("Error processing shipping confirmation: {}", e.getMessage(), e);
         }
     }
 }
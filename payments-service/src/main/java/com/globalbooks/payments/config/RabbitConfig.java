@@ -1,9 +1,13 @@
 package com.globalbooks.payments.config;
 
+import com.globalbooks.common.messaging.BatchListenerFactories;
+import com.globalbooks.common.messaging.DeduplicationWindow;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -30,4 +34,21 @@ public class RabbitConfig {
     public Queue paymentConfirmQueue() {
         return new Queue("paymentconfirm.queue", true);
     }
+
+    /**
+     * Batch listener factory for payment.queue. Acknowledge mode comes from
+     * spring.rabbitmq.listener.simple.acknowledge-mode.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory paymentQueueListenerFactory(BatchListenerFactories batchListenerFactories) {
+        return batchListenerFactories.create("payment-queue", 250, 50);
+    }
+
+    // Idempotency keys of recent payment.queue deliveries, used to drop redeliveries and duplicates
+    @Bean
+    public DeduplicationWindow paymentDeduplication(
+            @Value("${rabbit.listener.payment-queue.dedup-window-ms:600000}") long windowMs,
+            @Value("${rabbit.listener.payment-queue.dedup-max-keys:200000}") int maxKeys) {
+        return new DeduplicationWindow(windowMs, maxKeys);
+    }
 }
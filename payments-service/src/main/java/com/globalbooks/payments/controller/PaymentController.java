@@ -1,20 +1,38 @@
 package com.globalbooks.payments.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.globalbooks.payments.model.Page;
 import com.globalbooks.payments.model.Payment;
+import com.globalbooks.payments.repository.PaymentFilter;
 import com.globalbooks.payments.repository.PaymentRepository;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/payments")
 public class PaymentController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Rows fetched from the repository per step while streaming or listing everything
+    private static final int STREAM_CHUNK = 500;
+
     private final PaymentRepository paymentRepository;
+    private final ObjectMapper objectMapper;
 
-    public PaymentController(PaymentRepository paymentRepository) {
+    public PaymentController(PaymentRepository paymentRepository, ObjectMapper objectMapper) {
         this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -32,8 +50,74 @@ public class PaymentController {
         return ResponseEntity.ok(payment);
     }
 
+    /**
+     * Without cursor or limit, returns every matching payment as a JSON array, as this endpoint always
+     * has. Passing either opts in to paging, and the response becomes {items, nextCursor}.
+     */
     @GetMapping
-    public ResponseEntity<List<Payment>> getAllPayments() {
-        return ResponseEntity.ok(paymentRepository.findAll());
+    public ResponseEntity<?> getPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        PaymentFilter filter = new PaymentFilter(orderId, status, from, to);
+        if (cursor == null && limit == null) {
+            List<Payment> payments = new ArrayList<>();
+            Integer after = null;
+            do {
+                Page<Payment> page = paymentRepository.findPage(filter, after, STREAM_CHUNK);
+                payments.addAll(page.getItems());
+                after = page.getNextCursor() == null ? null : Integer.valueOf(page.getNextCursor());
+            } while (after != null);
+            return ResponseEntity.ok(payments);
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(paymentRepository.findPage(filter, parseCursor(cursor), pageSize));
+    }
+
+    /**
+     * Streams every matching payment as one JSON object per line. Payments are fetched a chunk at
+     * a time and written straight to the response, so memory use does not grow with the result.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        PaymentFilter filter = new PaymentFilter(orderId, status, from, to);
+        Integer start = parseCursor(cursor);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            Integer after = start;
+            do {
+                Page<Payment> page = paymentRepository.findPage(filter, after, STREAM_CHUNK);
+                for (Payment payment : page.getItems()) {
+                    generator.writeObject(payment);
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                after = page.getNextCursor() == null ? null : Integer.valueOf(page.getNextCursor());
+            } while (after != null);
+        };
+        return ResponseEntity.ok().header("Content-Type", NDJSON).body(body);
+    }
+
+    private static Integer parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
     }
 }
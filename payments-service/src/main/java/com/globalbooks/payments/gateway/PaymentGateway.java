@@ -0,0 +1,12 @@
+package com.globalbooks.payments.gateway;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous payment gateway. Implementations must not block the calling thread;
+ * the returned future completes once the gateway has approved or declined the charge.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<PaymentResult> charge(PaymentRequest request);
+}
@@ -0,0 +1,28 @@
+package com.globalbooks.payments.gateway;
+
+import java.math.BigDecimal;
+
+public class PaymentRequest {
+
+    private final Long orderId;
+    private final String customerId;
+    private final BigDecimal amount;
+
+    public PaymentRequest(Long orderId, String customerId, BigDecimal amount) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.amount = amount;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
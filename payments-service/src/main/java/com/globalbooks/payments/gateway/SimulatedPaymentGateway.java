@@ -0,0 +1,61 @@
+package com.globalbooks.payments.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a real payment provider. Each charge completes after a configurable
+ * latency (plus random jitter) and is declined with a configurable probability.
+ * Pending charges only occupy a scheduler slot, not a thread, so any number can be in flight.
+ */
+@Component
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final ScheduledExecutorService scheduler;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double failureRate;
+
+    public SimulatedPaymentGateway(@Value("${payments.gateway.latency-ms:2000}") long latencyMs,
+                                   @Value("${payments.gateway.jitter-ms:0}") long jitterMs,
+                                   @Value("${payments.gateway.failure-rate:0.0}") double failureRate,
+                                   @Value("${payments.gateway.threads:2}") int threads) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("payment-gateway-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newScheduledThreadPool(threads, threadFactory);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> charge(PaymentRequest request) {
+        CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayMs = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        boolean declined = random.nextDouble() < failureRate;
+
+        scheduler.schedule(() -> {
+            if (declined) {
+                result.complete(PaymentResult.declined("Simulated decline for order " + request.getOrderId()));
+            } else {
+                result.complete(PaymentResult.approved("TXN-" + UUID.randomUUID()));
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,6 +1,7 @@
 package com.globalbooks.payments.model;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 public class Payment {
 
@@ -8,6 +9,7 @@ public class Payment {
     private Long orderId;
     private BigDecimal amount;
     private String status;
+    private Instant createdAt;
 
     public Payment() {
     }
@@ -50,4 +52,12 @@ public class Payment {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
 }
@@ -0,0 +1,38 @@
+package com.globalbooks.payments.repository;
+
+import java.time.Instant;
+
+/**
+ * Conditions the repository checks against raw ledger slots before building Payment objects.
+ * Null fields match everything; the time range is [from, to).
+ */
+public class PaymentFilter {
+
+    private final Long orderId;
+    private final String status;
+    private final Instant from;
+    private final Instant to;
+
+    public PaymentFilter(Long orderId, String status, Instant from, Instant to) {
+        this.orderId = orderId;
+        this.status = status;
+        this.from = from;
+        this.to = to;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
@@ -1,33 +1,344 @@
 package com.globalbooks.payments.repository;
 
+import com.globalbooks.common.ledger.LongIntHashMap;
+import com.globalbooks.common.ledger.MappedSlotFile;
+import com.globalbooks.common.ledger.SlotChainIndex;
+import com.globalbooks.common.ledger.StringPool;
+import com.globalbooks.payments.model.Page;
 import com.globalbooks.payments.model.Payment;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Payments are stored in a memory-mapped ledger of 48-byte slots (id, orderId, amount as
+ * unscaled long plus scale, status reference, creation time) with statuses interned in a string pool.
+ * Only the primitive id and orderId indexes live on the heap; they are rebuilt from the
+ * ledger on startup. Payment objects are materialized per read, so updating one means
+ * saving it again.
+ */
 @Repository
 public class PaymentRepository {
 
-    private final Map<Long, Payment> payments = new ConcurrentHashMap<>();
+    private static final int ID = 0;
+    private static final int ORDER_ID = 8;
+    private static final int AMOUNT_UNSCALED = 16;
+    private static final int STATUS_REF = 24;
+    private static final int AMOUNT_SCALE = 32;
+    private static final int CREATED_AT = 40;
+    private static final int SLOT_SIZE = 48;
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    private final Path directory;
+    private final boolean sync;
+    private final int expectedSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final AtomicLong idCounter = new AtomicLong();
+    // Statuses are few, so their pooled strings are cached by reference
+    private final Map<Long, String> statusNames = new ConcurrentHashMap<>();
 
-    public Payment save(Payment payment) {
-        if (payment.getId() == null) {
-            payment.setId(idCounter.incrementAndGet());
+    private MappedSlotFile slots;
+    private StringPool strings;
+    private LongIntHashMap byId;
+    private SlotChainIndex byOrderId;
+
+    public PaymentRepository(@Value("${payments.ledger.dir:data/payments}") String directory,
+                             @Value("${payments.ledger.sync:false}") boolean sync,
+                             @Value("${payments.ledger.expected-size:100000}") int expectedSize) {
+        this.directory = Paths.get(directory);
+        this.sync = sync;
+        this.expectedSize = expectedSize;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        slots = new MappedSlotFile(directory.resolve("payments.ledger"), SLOT_SIZE);
+        strings = new StringPool(directory.resolve("payments.strings"));
+        int count = slots.count();
+        byId = new LongIntHashMap(Math.max(expectedSize, count));
+        byOrderId = new SlotChainIndex(Math.max(expectedSize, count));
+        for (int slot = 0; slot < count; slot++) {
+            long id = slots.getLong(slot, ID);
+            byId.put(id, slot);
+            indexOrder(slot);
+            idCounter.set(Math.max(idCounter.get(), id));
+            long statusRef = slots.getLong(slot, STATUS_REF);
+            strings.register(statusName(statusRef), statusRef);
         }
-        payments.put(payment.getId(), payment);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            slots.close();
+            strings.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Payment save(Payment payment) {
+        saveAll(Collections.singletonList(payment));
         return payment;
     }
 
+    public List<Payment> saveAll(Collection<Payment> batch) {
+        checkAmounts(batch);
+        lock.writeLock().lock();
+        try {
+            return writeAll(batch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves each new payment whose order has no payment yet, and returns the ones saved. The
+     * check and the write happen under one write lock, so of two consumers racing for the same
+     * order exactly one claims it. A batch naming an order twice only claims it for the first.
+     */
+    public List<Payment> claimAll(Collection<Payment> batch) {
+        checkAmounts(batch);
+        lock.writeLock().lock();
+        try {
+            Set<Long> orderIds = new HashSet<>();
+            List<Payment> claimed = new ArrayList<>(batch.size());
+            for (Payment payment : batch) {
+                if (orderIds.add(payment.getOrderId()) && !hasPayment(payment.getOrderId())) {
+                    claimed.add(payment);
+                }
+            }
+            return writeAll(claimed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reject the whole batch before touching the ledger
+    private static void checkAmounts(Collection<Payment> batch) {
+        for (Payment payment : batch) {
+            BigDecimal amount = payment.getAmount();
+            if (amount != null && amount.unscaledValue().bitLength() > 63) {
+                throw new IllegalArgumentException("Payment amount " + amount + " exceeds the ledger's precision");
+            }
+        }
+    }
+
+    // Caller holds the write lock
+    private List<Payment> writeAll(Collection<Payment> batch) {
+        try {
+            int count = slots.count();
+            boolean orderIdChanged = false;
+            Instant now = Instant.now();
+            for (Payment payment : batch) {
+                if (payment.getCreatedAt() == null) {
+                    payment.setCreatedAt(now);
+                }
+                if (payment.getId() == null) {
+                    payment.setId(idCounter.incrementAndGet());
+                } else {
+                    idCounter.accumulateAndGet(payment.getId(), Math::max);
+                }
+                int slot = byId.get(payment.getId());
+                boolean isNew = slot == LongIntHashMap.MISSING;
+                if (isNew) {
+                    slot = count++;
+                    slots.ensureCapacity(count);
+                } else {
+                    orderIdChanged |= slots.getLong(slot, ORDER_ID) != toLong(payment.getOrderId());
+                }
+                write(slot, payment);
+                if (isNew) {
+                    byId.put(payment.getId(), slot);
+                    indexOrder(slot);
+                }
+            }
+            slots.setCount(count);
+            if (orderIdChanged) {
+                byOrderId.clear();
+                for (int slot = 0; slot < count; slot++) {
+                    indexOrder(slot);
+                }
+            }
+            if (sync) {
+                strings.force();
+                slots.force();
+            }
+            return new ArrayList<>(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Payments could not be written to the ledger", e);
+        }
+    }
+
+    // Caller holds a lock
+    private boolean hasPayment(Long orderId) {
+        long key = toLong(orderId);
+        boolean[] found = new boolean[1];
+        byOrderId.forEach(key, slot -> found[0] |= slots.getLong(slot, ORDER_ID) == key);
+        return found[0];
+    }
+
     public Payment findById(Long id) {
-        return payments.get(id);
+        lock.readLock().lock();
+        try {
+            int slot = byId.get(id);
+            return slot == LongIntHashMap.MISSING ? null : read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Payment> findByOrderId(Long orderId) {
+        lock.readLock().lock();
+        try {
+            List<Payment> payments = new ArrayList<>();
+            long key = toLong(orderId);
+            // Slots whose orderId was rewritten may linger in an old chain until the next rebuild
+            byOrderId.forEach(key, slot -> {
+                if (slots.getLong(slot, ORDER_ID) == key) {
+                    payments.add(read(slot));
+                }
+            });
+            Collections.reverse(payments);
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit payments matching the filter stored after the cursor slot, in storage
+     * order. Filters are checked on the raw slots, so skipped rows are never materialized.
+     */
+    public Page<Payment> findPage(PaymentFilter filter, Integer afterSlot, int limit) {
+        lock.readLock().lock();
+        try {
+            int start = afterSlot == null ? 0 : afterSlot + 1;
+            List<Payment> items = new ArrayList<>(Math.min(limit, 1024));
+            if (filter.getOrderId() != null) {
+                List<Integer> candidates = new ArrayList<>();
+                byOrderId.forEach(filter.getOrderId(), candidates::add);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    int slot = candidates.get(i);
+                    if (slot >= start && matches(slot, filter)) {
+                        items.add(read(slot));
+                        if (items.size() == limit) {
+                            return new Page<>(items, String.valueOf(slot));
+                        }
+                    }
+                }
+                return new Page<>(items, null);
+            }
+            int count = slots.count();
+            for (int slot = start; slot < count; slot++) {
+                if (matches(slot, filter)) {
+                    items.add(read(slot));
+                    if (items.size() == limit) {
+                        return slot + 1 < count ? new Page<>(items, String.valueOf(slot)) : new Page<>(items, null);
+                    }
+                }
+            }
+            return new Page<>(items, null);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<Payment> findAll() {
-        return new ArrayList<>(payments.values());
+        lock.readLock().lock();
+        try {
+            int count = slots.count();
+            List<Payment> payments = new ArrayList<>(count);
+            for (int slot = 0; slot < count; slot++) {
+                payments.add(read(slot));
+            }
+            return payments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int slot, Payment payment) throws IOException {
+        slots.putLong(slot, ID, payment.getId());
+        slots.putLong(slot, ORDER_ID, toLong(payment.getOrderId()));
+        BigDecimal amount = payment.getAmount();
+        slots.putLong(slot, AMOUNT_UNSCALED, amount == null ? 0 : amount.unscaledValue().longValueExact());
+        slots.putInt(slot, AMOUNT_SCALE, amount == null ? NULL_SCALE : amount.scale());
+        slots.putLong(slot, STATUS_REF, strings.intern(payment.getStatus()));
+        slots.putLong(slot, CREATED_AT, payment.getCreatedAt().toEpochMilli());
+    }
+
+    private Payment read(int slot) {
+        long orderId = slots.getLong(slot, ORDER_ID);
+        int scale = slots.getInt(slot, AMOUNT_SCALE);
+        BigDecimal amount = scale == NULL_SCALE ? null
+                : new BigDecimal(BigInteger.valueOf(slots.getLong(slot, AMOUNT_UNSCALED)), scale);
+        Payment payment = new Payment(slots.getLong(slot, ID), orderId == NULL_LONG ? null : orderId, amount,
+                statusName(slots.getLong(slot, STATUS_REF)));
+        payment.setCreatedAt(Instant.ofEpochMilli(slots.getLong(slot, CREATED_AT)));
+        return payment;
+    }
+
+    private boolean matches(int slot, PaymentFilter filter) {
+        if (filter.getOrderId() != null && slots.getLong(slot, ORDER_ID) != filter.getOrderId()) {
+            return false;
+        }
+        long createdAt = slots.getLong(slot, CREATED_AT);
+        if (filter.getFrom() != null && createdAt < filter.getFrom().toEpochMilli()) {
+            return false;
+        }
+        if (filter.getTo() != null && createdAt >= filter.getTo().toEpochMilli()) {
+            return false;
+        }
+        return filter.getStatus() == null || filter.getStatus().equals(statusName(slots.getLong(slot, STATUS_REF)));
+    }
+
+    private String statusName(long ref) {
+        if (ref == StringPool.NULL_REF) {
+            return null;
+        }
+        return statusNames.computeIfAbsent(ref, r -> {
+            try {
+                return strings.get(r);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Status " + r + " could not be read", e);
+            }
+        });
+    }
+
+    private void indexOrder(int slot) {
+        long orderId = slots.getLong(slot, ORDER_ID);
+        if (orderId != NULL_LONG) {
+            byOrderId.add(orderId, slot);
+        }
+    }
+
+    private static long toLong(Long value) {
+        return value == null ? NULL_LONG : value;
     }
 }
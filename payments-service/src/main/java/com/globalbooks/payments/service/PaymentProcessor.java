@@ -1,16 +1,30 @@
 package com.globalbooks.payments.service;
 
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import com.globalbooks.common.messaging.DeduplicationWindow;
+import com.globalbooks.payments.gateway.PaymentGateway;
+import com.globalbooks.payments.gateway.PaymentRequest;
+import com.globalbooks.payments.gateway.PaymentResult;
 import com.globalbooks.payments.model.Payment;
 import com.globalbooks.payments.repository.PaymentRepository;
+import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class PaymentProcessor {
@@ -21,55 +35,216 @@ public class PaymentProcessor {
     private PaymentRepository paymentRepository;
 
     @Autowired
-    private AmqpTemplate amqpTemplate;
+    private ConfirmedBatchPublisher publisher;
 
-    @RabbitListener(queues = "payment.queue")
-    public void processPayment(Map<String, Object> paymentData) {
-        try {
-            logger.info("Processing payment from payment.queue: {}", paymentData);
+    @Autowired
+    private PaymentGateway paymentGateway;
 
-            // Simulate payment processing delay
-            Thread.sleep(2000);
+    @Autowired
+    private DeduplicationWindow paymentDeduplication;
+
+    /**
+     * Receives a batch from payment.queue, records all payments with one repository write and
+     * starts every charge without waiting for the gateway. The container runs in MANUAL ack
+     * mode; each delivery is acked on its own once the broker has confirmed its confirmation and
+     * shipping messages, so a slow charge does not hold back the rest of the batch.
+     *
+     * Only a failed ledger write, before anything is charged, requeues deliveries. Once a charge
+     * has started its outcome is in the ledger, and the outcome messages are re-sent until they
+     * are confirmed; the delivery is never requeued.
+     *
+     * A delivery whose idempotency key was seen recently is acked without creating a payment.
+     * A delivery for an order that already has a payment, such as a redelivery after a lost ack
+     * or a restart, republishes that payment's recorded outcome instead of charging. If the
+     * outcome was never recorded, the order is logged for reconciliation rather than charged.
+     * Payments are claimed per order under the repository's write lock, so a second request
+     * for the same order, in this batch or on another consumer, is acked without a charge.
+     */
+    @RabbitListener(queues = "payment.queue", containerFactory = "paymentQueueListenerFactory")
+    public void processPayments(List<Message<Map<String, Object>>> batch, Channel channel) {
+        logger.info("Processing {} payment(s) from payment.queue", batch.size());
+
+        List<Payment> payments = new ArrayList<>(batch.size());
+        List<Message<Map<String, Object>>> accepted = new ArrayList<>(batch.size());
+        List<String> keys = new ArrayList<>(batch.size());
+        Set<Long> orderIds = new HashSet<>();
+        for (Message<Map<String, Object>> message : batch) {
+            try {
+                Map<String, Object> paymentData = message.getPayload();
+                Long orderId = ((Number) paymentData.get("orderId")).longValue();
+                double amount = ((Number) paymentData.get("amount")).doubleValue();
+
+                String key = idempotencyKey(orderId, message);
+                if (!paymentDeduplication.firstSeen(key)) {
+                    logger.info("Dropping duplicate payment request {} for order {}", key, orderId);
+                    ack(channel, message);
+                    continue;
+                }
+                if (!orderIds.add(orderId)) {
+                    logger.info("Dropping second payment request {} for order {} in one batch", key, orderId);
+                    ack(channel, message);
+                    continue;
+                }
+                List<Payment> existing = paymentRepository.findByOrderId(orderId);
+                if (!existing.isEmpty()) {
+                    republishOutcome(existing.get(existing.size() - 1), paymentData, channel, message);
+                    continue;
+                }
+
+                // Create payment record
+                Payment payment = new Payment();
+                payment.setOrderId(orderId);
+                payment.setAmount(BigDecimal.valueOf(amount));
+                payment.setStatus("PROCESSING");
+                payments.add(payment);
+                accepted.add(message);
+                keys.add(key);
+            } catch (Exception e) {
+                logger.error("Error reading payment {}: {}", message.getPayload(), e.getMessage(), e);
+                ack(channel, message);
+            }
+        }
 
-            Long orderId = ((Number) paymentData.get("orderId")).longValue();
-            double amount = ((Number) paymentData.get("amount")).doubleValue();
+        List<Payment> claimed;
+        try {
+            claimed = paymentRepository.claimAll(payments);
+        } catch (RuntimeException e) {
+            // Nothing has been charged yet, so these deliveries can still be requeued
+            logger.error("Could not record {} payment(s), requeueing: {}", payments.size(), e.getMessage(), e);
+            keys.forEach(paymentDeduplication::forget);
+            accepted.forEach(message -> nack(channel, message));
+            return;
+        }
+        logger.info("Created {} payment(s)", claimed.size());
+
+        for (int i = 0; i < payments.size(); i++) {
+            Payment savedPayment = payments.get(i);
+            Message<Map<String, Object>> message = accepted.get(i);
+            if (savedPayment.getId() == null) {
+                // Not claimed: another consumer recorded a payment for the order first and publishes its outcome
+                logger.info("Order {} already has a payment, not charging again", savedPayment.getOrderId());
+                ack(channel, message);
+                continue;
+            }
+            Map<String, Object> paymentData = message.getPayload();
+            try {
+                PaymentRequest request = new PaymentRequest(savedPayment.getOrderId(),
+                        (String) paymentData.get("customerId"), savedPayment.getAmount());
+                paymentGateway.charge(request)
+                        .thenApply(result -> completePayment(savedPayment, paymentData, result, null))
+                        .exceptionally(ex -> completePayment(savedPayment, paymentData, null,
+                                ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex))
+                        .thenCompose(published -> published)
+                        .whenComplete((ignored, ex) -> ackOnceConfirmed(channel, message, savedPayment, ex));
+            } catch (Exception e) {
+                logger.error("Error starting payment {}: {}", savedPayment.getId(), e.getMessage(), e);
+                ack(channel, message);
+            }
+        }
+    }
 
-            // Create payment record
-            Payment payment = new Payment();
-            payment.setOrderId(orderId);
-            payment.setAmount(new java.math.BigDecimal(amount));
-            payment.setStatus("PROCESSING");
+    // The message id survives redelivery and publisher re-sends; null for messages published without one
+    private static String idempotencyKey(Long orderId, Message<?> message) {
+        String messageId = message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+        return messageId == null ? null : orderId + ":" + messageId;
+    }
 
-            Payment savedPayment = paymentRepository.save(payment);
-            logger.info("Payment created with ID: {}", savedPayment.getId());
+    private void ack(Channel channel, Message<?> message) {
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            // The broker redelivers the message if the channel was lost before the ack
+            logger.warn("Could not ack delivery {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private void nack(Channel channel, Message<?> message) {
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (Exception e) {
+            logger.warn("Could not nack delivery {}: {}", deliveryTag, e.getMessage());
+        }
+    }
 
-            // Process payment (simulate success)
-            savedPayment.setStatus("COMPLETED");
-            paymentRepository.save(savedPayment);
-            logger.info("Payment {} completed for order {}", savedPayment.getId(), orderId);
+    private void ackOnceConfirmed(Channel channel, Message<?> message, Payment payment, Throwable failure) {
+        if (failure == null) {
+            ack(channel, message);
+        } else {
+            // The publisher only gives up when it shuts down. Left unacked, the delivery comes back
+            // after the restart and republishes the outcome from the ledger without charging.
+            logger.error("Outcome of payment {} was not confirmed before shutdown: {}",
+                    payment.getId(), failure.getMessage());
+        }
+    }
 
-            // Send confirmation back to orders service
-            Map<String, Object> paymentConfirmation = new HashMap<>();
-            paymentConfirmation.put("orderId", orderId);
-            paymentConfirmation.put("paymentId", savedPayment.getId());
-            paymentConfirmation.put("status", "COMPLETED");
-            paymentConfirmation.put("amount", amount);
+    // The charge for this order already started, so it must not be charged again
+    private void republishOutcome(Payment payment, Map<String, Object> paymentData, Channel channel, Message<?> message) {
+        if ("PROCESSING".equals(payment.getStatus())) {
+            logger.warn("Payment {} for order {} has no recorded outcome; not charging again, needs reconciliation",
+                    payment.getId(), payment.getOrderId());
+            ack(channel, message);
+            return;
+        }
+        logger.info("Payment {} for order {} is already {}, republishing its outcome",
+                payment.getId(), payment.getOrderId(), payment.getStatus());
+        publishOutcome(payment, paymentData, null, null)
+                .whenComplete((ignored, ex) -> ackOnceConfirmed(channel, message, payment, ex));
+    }
 
-            amqpTemplate.convertAndSend("paymentconfirm.queue", paymentConfirmation);
-            logger.info("Payment confirmation sent to paymentconfirm.queue: {}", paymentConfirmation);
+    // Runs on the gateway's completion thread; completes once every outgoing message is confirmed
+    private CompletableFuture<Void> completePayment(Payment payment, Map<String, Object> paymentData, PaymentResult result, Throwable failure) {
+        try {
+            Long orderId = payment.getOrderId();
+            boolean approved = failure == null && result.isApproved();
 
-            // Send to shipping queue for shipping processing
-            Map<String, Object> shippingMessage = new HashMap<>();
-            shippingMessage.put("orderId", orderId);
-            shippingMessage.put("customerId", paymentData.get("customerId"));
-            shippingMessage.put("bookDetails", paymentData.get("bookDetails"));
-            shippingMessage.put("shippingAddress", paymentData.get("shippingAddress"));
+            payment.setStatus(approved ? "COMPLETED" : "FAILED");
+            paymentRepository.save(payment);
 
-            amqpTemplate.convertAndSend("shipping.queue", shippingMessage);
-            logger.info("Shipping message sent to shipping.queue: {}", shippingMessage);
+            if (!approved) {
+                String reason = failure != null ? failure.getMessage() : result.getFailureReason();
+                logger.warn("Payment {} failed for order {}: {}", payment.getId(), orderId, reason);
+                return publishOutcome(payment, paymentData, null, reason);
+            }
+            logger.info("Payment {} completed for order {}", payment.getId(), orderId);
+            return publishOutcome(payment, paymentData, result.getTransactionId(), null);
 
         } catch (Exception e) {
-            logger.error("Error processing payment: {}", e.getMessage(), e);
+            logger.error("Error completing payment {}: {}", payment.getId(), e.getMessage(), e);
+            return CompletableFuture.completedFuture(null);
         }
     }
+
+    // transactionId and reason are only known right after the charge, not when republishing
+    private CompletableFuture<Void> publishOutcome(Payment payment, Map<String, Object> paymentData,
+                                                   String transactionId, String reason) {
+        // Send confirmation back to orders service
+        Map<String, Object> paymentConfirmation = new HashMap<>();
+        paymentConfirmation.put("orderId", payment.getOrderId());
+        paymentConfirmation.put("paymentId", payment.getId());
+        paymentConfirmation.put("status", payment.getStatus());
+        paymentConfirmation.put("amount", payment.getAmount().doubleValue());
+        if (transactionId != null) {
+            paymentConfirmation.put("transactionId", transactionId);
+        }
+        if (reason != null) {
+            paymentConfirmation.put("reason", reason);
+        }
+        CompletableFuture<Void> confirmationSent = publisher.publishUntilConfirmed("paymentconfirm.queue", paymentConfirmation);
+        if (!"COMPLETED".equals(payment.getStatus())) {
+            return confirmationSent;
+        }
+
+        // Send to shipping queue for shipping processing
+        Map<String, Object> shippingMessage = new HashMap<>();
+        shippingMessage.put("orderId", payment.getOrderId());
+        shippingMessage.put("customerId", paymentData.get("customerId"));
+        shippingMessage.put("bookDetails", paymentData.get("bookDetails"));
+        shippingMessage.put("shippingAddress", paymentData.get("shippingAddress"));
+
+        CompletableFuture<Void> shippingSent = publisher.publishUntilConfirmed("shipping.queue", shippingMessage);
+        logger.info("Payment {} queued for paymentconfirm.queue and shipping.queue", payment.getId());
+        return CompletableFuture.allOf(confirmationSent, shippingSent);
+    }
 }
@@ -0,0 +1,88 @@
+#!/bin/bash
+
+# Side-by-side throughput comparison of platform-thread and virtual-thread modes.
+#
+# Restarts one service twice (globalbooks.threads.virtual=false, then true) and drives it
+# with the same load each time. The services it calls (catalog-service, RabbitMQ, ...)
+# must already be running. Virtual-thread mode needs JAVA_HOME pointing at a Java 21+ JDK.
+#
+# Usage: scripts/compare-thread-modes.sh [module] [port] [path] [concurrency] [requests]
+# Example: scripts/compare-thread-modes.sh order-orchestration-service 8086 /api/orders/process 1000 20000
+
+# Get the directory where this script is located
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+# Get the parent directory (project root)
+PROJECT_ROOT="$(cd "$SCRIPT_DIR/.." && pwd)"
+
+MODULE=${1:-order-orchestration-service}
+PORT=${2:-8086}
+REQUEST_PATH=${3:-/api/orders/process}
+CONCURRENCY=${4:-1000}
+REQUESTS=${5:-20000}
+BODY='{"customerId":"load-test","bookId":"1","quantity":1}'
+LOG_DIR="$PROJECT_ROOT/logs"
+mkdir -p "$LOG_DIR"
+
+if command -v hey > /dev/null; then
+    LOAD_TOOL=hey
+elif command -v ab > /dev/null; then
+    LOAD_TOOL=ab
+else
+    echo "Install 'hey' or 'ab' (apache2-utils) to run the comparison."
+    exit 1
+fi
+
+stop_service() {
+    PID=$(lsof -t -i:$PORT)
+    if [ -n "$PID" ]; then
+        kill $PID
+        sleep 5
+    fi
+}
+
+start_service() {
+    local virtual=$1
+    cd "$PROJECT_ROOT" && mvn -q spring-boot:run -pl "$MODULE" \
+        -Dspring-boot.run.arguments="--globalbooks.threads.virtual=$virtual" \
+        > "$LOG_DIR/$MODULE-virtual-$virtual.log" 2>&1 &
+    for i in $(seq 1 60); do
+        if curl -s "http://localhost:$PORT/health" > /dev/null; then
+            return 0
+        fi
+        sleep 2
+    done
+    echo "$MODULE did not start, see $LOG_DIR/$MODULE-virtual-$virtual.log"
+    exit 1
+}
+
+run_load() {
+    local url="http://localhost:$PORT$REQUEST_PATH"
+    # Warm up the JIT and connection pools before measuring
+    if [ "$LOAD_TOOL" = "hey" ]; then
+        hey -n 2000 -c 50 -m POST -T application/json -d "$BODY" "$url" > /dev/null
+        hey -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json -d "$BODY" "$url" \
+            | awk '/Requests\/sec/ {rps=$2} /99% in/ {p99=$3} END {print rps, p99 * 1000}'
+    else
+        BODY_FILE=$(mktemp)
+        echo "$BODY" > "$BODY_FILE"
+        ab -q -n 2000 -c 50 -p "$BODY_FILE" -T application/json "$url" > /dev/null
+        ab -q -n "$REQUESTS" -c "$CONCURRENCY" -p "$BODY_FILE" -T application/json "$url" \
+            | awk '/Requests per second/ {rps=$4} /^ *99%/ {p99=$2} END {print rps, p99}'
+        rm -f "$BODY_FILE"
+    fi
+}
+
+declare -A RESULTS
+for VIRTUAL in false true; do
+    echo "Measuring $MODULE with globalbooks.threads.virtual=$VIRTUAL ..."
+    stop_service
+    start_service $VIRTUAL
+    RESULTS[$VIRTUAL]=$(run_load)
+done
+stop_service
+
+echo
+echo "$MODULE  POST $REQUEST_PATH  concurrency=$CONCURRENCY requests=$REQUESTS ($LOAD_TOOL)"
+printf "%-18s %14s %12s\n" "mode" "requests/sec" "p99 (ms)"
+printf "%-18s %14s %12s\n" "platform threads" ${RESULTS[false]}
+printf "%-18s %14s %12s\n" "virtual threads" ${RESULTS[true]}
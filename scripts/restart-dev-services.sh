@@ -17,7 +17,7 @@ done
 sleep 5
 
 echo "Building all services..."
-cd "$PROJECT_ROOT" && mvn clean compile
+cd "$PROJECT_ROOT" && mvn clean install -DskipTests
 
 # Check if build was successful
 if [ $? -ne 0 ]; then
@@ -6,7 +6,7 @@ SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
 PROJECT_ROOT="$(cd "$SCRIPT_DIR/.." && pwd)"
 
 echo "Building all services..."
-cd "$PROJECT_ROOT" && mvn clean compile
+cd "$PROJECT_ROOT" && mvn clean install -DskipTests
 
 echo "Starting all services..."
 
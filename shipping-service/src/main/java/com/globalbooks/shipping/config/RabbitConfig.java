@@ -1,9 +1,13 @@
 package com.globalbooks.shipping.config;
 
+import com.globalbooks.common.messaging.BatchListenerFactories;
+import com.globalbooks.common.messaging.DeduplicationWindow;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -25,4 +29,21 @@ public class RabbitConfig {
     public Queue shippingConfirmQueue() {
         return new Queue("shippingconfirm.queue", true);
     }
+
+    /**
+     * Batch listener factory for shipping.queue: up to batch-size messages per listener call,
+     * with a partial batch released after the receive timeout.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory shippingQueueListenerFactory(BatchListenerFactories batchListenerFactories) {
+        return batchListenerFactories.create("shipping-queue", 50, 20);
+    }
+
+    // Idempotency keys of recent shipping.queue deliveries, used to drop redeliveries and duplicates
+    @Bean
+    public DeduplicationWindow shippingDeduplication(
+            @Value("${rabbit.listener.shipping-queue.dedup-window-ms:600000}") long windowMs,
+            @Value("${rabbit.listener.shipping-queue.dedup-max-keys:200000}") int maxKeys) {
+        return new DeduplicationWindow(windowMs, maxKeys);
+    }
 }
@@ -1,11 +1,14 @@
 package com.globalbooks.shipping.model;
 
+import java.time.Instant;
+
 public class Shipment {
 
     private Long id;
     private Long orderId;
     private String address;
     private String status;
+    private Instant createdAt;
 
     public Shipment() {
     }
@@ -48,4 +51,12 @@ public class Shipment {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
 }
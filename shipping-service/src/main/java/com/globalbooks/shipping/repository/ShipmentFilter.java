@@ -0,0 +1,38 @@
+package com.globalbooks.shipping.repository;
+
+import java.time.Instant;
+
+/**
+ * Conditions the repository checks against raw ledger slots before building Shipment objects.
+ * Null fields match everything; the time range is [from, to).
+ */
+public class ShipmentFilter {
+
+    private final Long orderId;
+    private final String status;
+    private final Instant from;
+    private final Instant to;
+
+    public ShipmentFilter(Long orderId, String status, Instant from, Instant to) {
+        this.orderId = orderId;
+        this.status = status;
+        this.from = from;
+        this.to = to;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
@@ -1,33 +1,294 @@
 package com.globalbooks.shipping.repository;
 
+import com.globalbooks.common.ledger.LongIntHashMap;
+import com.globalbooks.common.ledger.MappedSlotFile;
+import com.globalbooks.common.ledger.SlotChainIndex;
+import com.globalbooks.common.ledger.StringPool;
+import com.globalbooks.shipping.model.Page;
 import com.globalbooks.shipping.model.Shipment;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Shipments are stored in a memory-mapped ledger of 40-byte slots (id, orderId, address
+ * reference, status reference, creation time). Addresses are appended to a string pool and statuses are
+ * interned in it. The id and orderId indexes are primitive arrays rebuilt on startup, and a
+ * Shipment object is materialized per read, so updating one means saving it again.
+ */
 @Repository
 public class ShipmentRepository {
 
-    private final Map<Long, Shipment> shipments = new ConcurrentHashMap<>();
+    private static final int ID = 0;
+    private static final int ORDER_ID = 8;
+    private static final int ADDRESS_REF = 16;
+    private static final int STATUS_REF = 24;
+    private static final int CREATED_AT = 32;
+    private static final int SLOT_SIZE = 40;
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final boolean sync;
+    private final int expectedSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final AtomicLong idCounter = new AtomicLong();
+    // Statuses are few, so their pooled strings are cached by reference
+    private final Map<Long, String> statusNames = new ConcurrentHashMap<>();
 
-    public Shipment save(Shipment shipment) {
-        if (shipment.getId() == null) {
-            shipment.setId(idCounter.incrementAndGet());
+    private MappedSlotFile slots;
+    private StringPool strings;
+    private LongIntHashMap byId;
+    private SlotChainIndex byOrderId;
+
+    public ShipmentRepository(@Value("${shipping.ledger.dir:data/shipments}") String directory,
+                              @Value("${shipping.ledger.sync:false}") boolean sync,
+                              @Value("${shipping.ledger.expected-size:100000}") int expectedSize) {
+        this.directory = Paths.get(directory);
+        this.sync = sync;
+        this.expectedSize = expectedSize;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        slots = new MappedSlotFile(directory.resolve("shipments.ledger"), SLOT_SIZE);
+        strings = new StringPool(directory.resolve("shipments.strings"));
+        int count = slots.count();
+        byId = new LongIntHashMap(Math.max(expectedSize, count));
+        byOrderId = new SlotChainIndex(Math.max(expectedSize, count));
+        for (int slot = 0; slot < count; slot++) {
+            long id = slots.getLong(slot, ID);
+            byId.put(id, slot);
+            indexOrder(slot);
+            idCounter.set(Math.max(idCounter.get(), id));
+            long statusRef = slots.getLong(slot, STATUS_REF);
+            strings.register(statusName(statusRef), statusRef);
         }
-        shipments.put(shipment.getId(), shipment);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            slots.close();
+            strings.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Shipment save(Shipment shipment) {
+        saveAll(Collections.singletonList(shipment));
         return shipment;
     }
 
+    public List<Shipment> saveAll(Collection<Shipment> batch) {
+        lock.writeLock().lock();
+        try {
+            int count = slots.count();
+            boolean orderIdChanged = false;
+            Instant now = Instant.now();
+            for (Shipment shipment : batch) {
+                if (shipment.getCreatedAt() == null) {
+                    shipment.setCreatedAt(now);
+                }
+                if (shipment.getId() == null) {
+                    shipment.setId(idCounter.incrementAndGet());
+                } else {
+                    idCounter.accumulateAndGet(shipment.getId(), Math::max);
+                }
+                int slot = byId.get(shipment.getId());
+                boolean isNew = slot == LongIntHashMap.MISSING;
+                if (isNew) {
+                    slot = count++;
+                    slots.ensureCapacity(count);
+                } else {
+                    orderIdChanged |= slots.getLong(slot, ORDER_ID) != toLong(shipment.getOrderId());
+                }
+                write(slot, shipment, isNew);
+                if (isNew) {
+                    byId.put(shipment.getId(), slot);
+                    indexOrder(slot);
+                }
+            }
+            slots.setCount(count);
+            if (orderIdChanged) {
+                byOrderId.clear();
+                for (int slot = 0; slot < count; slot++) {
+                    indexOrder(slot);
+                }
+            }
+            if (sync) {
+                strings.force();
+                slots.force();
+            }
+            return new ArrayList<>(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shipments could not be written to the ledger", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public Shipment findById(Long id) {
-        return shipments.get(id);
+        lock.readLock().lock();
+        try {
+            int slot = byId.get(id);
+            return slot == LongIntHashMap.MISSING ? null : read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Shipment> findByOrderId(Long orderId) {
+        lock.readLock().lock();
+        try {
+            List<Shipment> shipments = new ArrayList<>();
+            long key = toLong(orderId);
+            // Slots whose orderId was rewritten may linger in an old chain until the next rebuild
+            byOrderId.forEach(key, slot -> {
+                if (slots.getLong(slot, ORDER_ID) == key) {
+                    shipments.add(read(slot));
+                }
+            });
+            Collections.reverse(shipments);
+            return shipments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit shipments matching the filter stored after the cursor slot, in storage
+     * order. Filters are checked on the raw slots, so skipped rows are never materialized.
+     */
+    public Page<Shipment> findPage(ShipmentFilter filter, Integer afterSlot, int limit) {
+        lock.readLock().lock();
+        try {
+            int start = afterSlot == null ? 0 : afterSlot + 1;
+            List<Shipment> items = new ArrayList<>(Math.min(limit, 1024));
+            if (filter.getOrderId() != null) {
+                List<Integer> candidates = new ArrayList<>();
+                byOrderId.forEach(filter.getOrderId(), candidates::add);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    int slot = candidates.get(i);
+                    if (slot >= start && matches(slot, filter)) {
+                        items.add(read(slot));
+                        if (items.size() == limit) {
+                            return new Page<>(items, String.valueOf(slot));
+                        }
+                    }
+                }
+                return new Page<>(items, null);
+            }
+            int count = slots.count();
+            for (int slot = start; slot < count; slot++) {
+                if (matches(slot, filter)) {
+                    items.add(read(slot));
+                    if (items.size() == limit) {
+                        return slot + 1 < count ? new Page<>(items, String.valueOf(slot)) : new Page<>(items, null);
+                    }
+                }
+            }
+            return new Page<>(items, null);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<Shipment> findAll() {
-        return new ArrayList<>(shipments.values());
+        lock.readLock().lock();
+        try {
+            int count = slots.count();
+            List<Shipment> shipments = new ArrayList<>(count);
+            for (int slot = 0; slot < count; slot++) {
+                shipments.add(read(slot));
+            }
+            return shipments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int slot, Shipment shipment, boolean isNew) throws IOException {
+        // Re-saving with the same address (e.g. a status change) reuses the pooled copy
+        long addressRef = isNew ? StringPool.NULL_REF : slots.getLong(slot, ADDRESS_REF);
+        if (isNew || !Objects.equals(strings.get(addressRef), shipment.getAddress())) {
+            addressRef = strings.append(shipment.getAddress());
+        }
+        slots.putLong(slot, ID, shipment.getId());
+        slots.putLong(slot, ORDER_ID, toLong(shipment.getOrderId()));
+        slots.putLong(slot, ADDRESS_REF, addressRef);
+        slots.putLong(slot, STATUS_REF, strings.intern(shipment.getStatus()));
+        slots.putLong(slot, CREATED_AT, shipment.getCreatedAt().toEpochMilli());
+    }
+
+    private Shipment read(int slot) {
+        long orderId = slots.getLong(slot, ORDER_ID);
+        try {
+            Shipment shipment = new Shipment(slots.getLong(slot, ID), orderId == NULL_LONG ? null : orderId,
+                    strings.get(slots.getLong(slot, ADDRESS_REF)), statusName(slots.getLong(slot, STATUS_REF)));
+            shipment.setCreatedAt(Instant.ofEpochMilli(slots.getLong(slot, CREATED_AT)));
+            return shipment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shipment in slot " + slot + " could not be read", e);
+        }
+    }
+
+    private boolean matches(int slot, ShipmentFilter filter) {
+        if (filter.getOrderId() != null && slots.getLong(slot, ORDER_ID) != filter.getOrderId()) {
+            return false;
+        }
+        long createdAt = slots.getLong(slot, CREATED_AT);
+        if (filter.getFrom() != null && createdAt < filter.getFrom().toEpochMilli()) {
+            return false;
+        }
+        if (filter.getTo() != null && createdAt >= filter.getTo().toEpochMilli()) {
+            return false;
+        }
+        return filter.getStatus() == null || filter.getStatus().equals(statusName(slots.getLong(slot, STATUS_REF)));
+    }
+
+    private String statusName(long ref) {
+        if (ref == StringPool.NULL_REF) {
+            return null;
+        }
+        return statusNames.computeIfAbsent(ref, r -> {
+            try {
+                return strings.get(r);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Status " + r + " could not be read", e);
+            }
+        });
+    }
+
+    private void indexOrder(int slot) {
+        long orderId = slots.getLong(slot, ORDER_ID);
+        if (orderId != NULL_LONG) {
+            byOrderId.add(orderId, slot);
+        }
+    }
+
+    private static long toLong(Long value) {
+        return value == null ? NULL_LONG : value;
     }
 }
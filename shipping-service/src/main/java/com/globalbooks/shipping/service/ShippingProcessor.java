@@ -1,16 +1,28 @@
 package com.globalbooks.shipping.service;
 
+import com.globalbooks.common.messaging.ConfirmedBatchPublisher;
+import com.globalbooks.common.messaging.DeduplicationWindow;
 import com.globalbooks.shipping.model.Shipment;
 import com.globalbooks.shipping.repository.ShipmentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class ShippingProcessor {
@@ -21,56 +33,159 @@ public class ShippingProcessor {
     private ShipmentRepository shipmentRepository;
 
     @Autowired
-    private AmqpTemplate amqpTemplate;
+    private ConfirmedBatchPublisher publisher;
 
+    @Autowired
+    private DeduplicationWindow shippingDeduplication;
+
+    @Value("${shipping.processing-delay-ms:3000}")
+    private long processingDelayMs;
+
+    @Value("${rabbit.publisher.confirm-timeout-ms:5000}")
+    private long confirmWaitMs;
+
+    /**
+     * Creates and ships a batch of shipments. Deliveries whose idempotency key was seen recently
+     * are skipped, and an order that already has a shipment is never given a second one: its
+     * shipment is finished if it was interrupted, otherwise its confirmation is sent again. Only
+     * a failure to record the new shipments lets the batch be requeued; once they are saved the
+     * delivery is always acked and confirmations are re-sent until the broker takes them.
+     */
     @SuppressWarnings("unchecked")
-    @RabbitListener(queues = "shipping.queue")
-    public void processShipping(Map<String, Object> shippingData) {
-        try {
-            logger.info("Processing shipping from shipping.queue: {}", shippingData);
-
-            // Simulate shipping processing delay
-            Thread.sleep(3000);
-
-            Long orderId = ((Number) shippingData.get("orderId")).longValue();
-            Map<String, Object> shippingAddress = (Map<String, Object>) shippingData.get("shippingAddress");
-
-            // Create shipment record
-            Shipment shipment = new Shipment();
-            shipment.setOrderId(orderId);
-            
-            // Extract address details
-            if (shippingAddress != null) {
-                shipment.setAddress(
-                    shippingAddress.get("street") + ", " + 
-                    shippingAddress.get("city") + ", " + 
-                    shippingAddress.get("state") + " " + 
-                    shippingAddress.get("zipCode")
-                );
+    @RabbitListener(queues = "shipping.queue", containerFactory = "shippingQueueListenerFactory")
+    public void processShipments(List<Message<Map<String, Object>>> batch) {
+        logger.info("Processing {} shipment(s) from shipping.queue", batch.size());
+
+        List<Shipment> shipments = new ArrayList<>(batch.size());
+        List<Shipment> unfinished = new ArrayList<>();
+        List<Shipment> shipped = new ArrayList<>();
+        List<String> keys = new ArrayList<>(batch.size());
+        Set<Long> orderIds = new HashSet<>();
+        for (Message<Map<String, Object>> message : batch) {
+            Map<String, Object> shippingData = message.getPayload();
+            try {
+                Long orderId = ((Number) shippingData.get("orderId")).longValue();
+                String key = idempotencyKey(orderId, message);
+                if (!shippingDeduplication.firstSeen(key)) {
+                    logger.info("Dropping duplicate shipping request {} for order {}", key, orderId);
+                    continue;
+                }
+                keys.add(key);
+                if (!orderIds.add(orderId)) {
+                    continue;
+                }
+
+                // Payment outcomes may be re-sent under a new message id, so the ledger has the last word
+                List<Shipment> existing = shipmentRepository.findByOrderId(orderId);
+                if (!existing.isEmpty()) {
+                    Shipment shipment = existing.get(0);
+                    logger.info("Order {} already has shipment {} ({})", orderId, shipment.getId(), shipment.getStatus());
+                    if ("SHIPPED".equals(shipment.getStatus())) {
+                        shipped.add(shipment);
+                    } else {
+                        unfinished.add(shipment);
+                    }
+                    continue;
+                }
+                Map<String, Object> shippingAddress = (Map<String, Object>) shippingData.get("shippingAddress");
+
+                // Create shipment record
+                Shipment shipment = new Shipment();
+                shipment.setOrderId(orderId);
+
+                // Extract address details
+                if (shippingAddress != null) {
+                    shipment.setAddress(
+                        shippingAddress.get("street") + ", " +
+                        shippingAddress.get("city") + ", " +
+                        shippingAddress.get("state") + " " +
+                        shippingAddress.get("zipCode")
+                    );
+                }
+
+                shipment.setStatus("PREPARING");
+                shipments.add(shipment);
+            } catch (Exception e) {
+                logger.error("Error reading shipment {}: {}", shippingData, e.getMessage(), e);
             }
-            
-            shipment.setStatus("PREPARING");
+        }
+
+        if (shipments.isEmpty() && unfinished.isEmpty() && shipped.isEmpty()) {
+            return;
+        }
+
+        // Nothing has been recorded if this fails, so the batch may be requeued and retried
+        try {
+            shipmentRepository.saveAll(shipments);
+        } catch (RuntimeException e) {
+            keys.forEach(shippingDeduplication::forget);
+            throw e;
+        }
+        logger.info("Created {} shipment(s)", shipments.size());
 
-            Shipment savedShipment = shipmentRepository.save(shipment);
-            logger.info("Shipment created with ID: {} for order {}", savedShipment.getId(), orderId);
+        shipments.addAll(unfinished);
+        try {
+            ship(shipments);
+        } catch (RuntimeException e) {
+            // The shipments stay PREPARING and are finished by the next request for their order
+            logger.error("Error shipping {} shipment(s): {}", shipments.size(), e.getMessage(), e);
+            return;
+        }
+        shipments.addAll(shipped);
+        confirm(shipments);
+    }
 
-            // Process shipment (simulate shipping)
-            savedShipment.setStatus("SHIPPED");
-            shipmentRepository.save(savedShipment);
-            logger.info("Shipment {} shipped for order {}", savedShipment.getId(), orderId);
+    private void ship(List<Shipment> shipments) {
+        if (shipments.isEmpty()) {
+            return;
+        }
+        try {
+            // Simulate shipping processing delay; the carrier takes the batch in one hand-off
+            Thread.sleep(processingDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
 
-            // Send confirmation back to orders service
-            Map<String, Object> shippingConfirmation = new HashMap<>();
-            shippingConfirmation.put("orderId", orderId);
-            shippingConfirmation.put("shipmentId", savedShipment.getId());
-            shippingConfirmation.put("status", "SHIPPED");
-            shippingConfirmation.put("trackingNumber", "TRK" + savedShipment.getId());
+        // Process shipments (simulate shipping)
+        for (Shipment shipment : shipments) {
+            shipment.setStatus("SHIPPED");
+        }
+        shipmentRepository.saveAll(shipments);
+    }
 
-            amqpTemplate.convertAndSend("shippingconfirm.queue", shippingConfirmation);
-            logger.info("Shipping confirmation sent to shippingconfirm.queue: {}", shippingConfirmation);
+    private void confirm(List<Shipment> shipments) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(shipments.size());
+        for (Shipment shipment : shipments) {
+            try {
+                // Send confirmation back to orders service
+                Map<String, Object> shippingConfirmation = new HashMap<>();
+                shippingConfirmation.put("orderId", shipment.getOrderId());
+                shippingConfirmation.put("shipmentId", shipment.getId());
+                shippingConfirmation.put("status", "SHIPPED");
+                shippingConfirmation.put("trackingNumber", "TRK" + shipment.getId());
 
-        } catch (Exception e) {
-            logger.error("Error processing shipping: {}", e.getMessage(), e);
+                sent.add(publisher.publishUntilConfirmed("shippingconfirm.queue", shippingConfirmation));
+                logger.info("Shipment {} shipped for order {}", shipment.getId(), shipment.getOrderId());
+            } catch (Exception e) {
+                logger.error("Error sending confirmation for shipment {}: {}", shipment.getId(), e.getMessage(), e);
+            }
         }
+
+        // Hold the ack until the broker has the confirmations, which paces intake to the broker
+        try {
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).get(confirmWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Confirmations for {} shipment(s) not confirmed yet, still re-sending", shipments.size());
+        } catch (ExecutionException e) {
+            logger.error("Shipping confirmations were not confirmed before shutdown: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The message id survives redelivery and publisher re-sends; null for messages published without one
+    private static String idempotencyKey(Long orderId, Message<?> message) {
+        String messageId = message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+        return messageId == null ? null : orderId + ":" + messageId;
     }
 }
@@ -36,6 +36,21 @@ if [ ! -f "$SCRIPT_DIR/test-4-catalog-ws-security.sh" ]; then
     exit 1
 fi
 
+if [ ! -f "$SCRIPT_DIR/test-6-order-state-confirmations.sh" ]; then
+    echo "❌ Error: test-6-order-state-confirmations.sh not found"
+    exit 1
+fi
+
+if [ ! -f "$SCRIPT_DIR/test-7-queue-deduplication.sh" ]; then
+    echo "❌ Error: test-7-queue-deduplication.sh not found"
+    exit 1
+fi
+
+if [ ! -f "$SCRIPT_DIR/test-8-catalog-search.sh" ]; then
+    echo "❌ Error: test-8-catalog-search.sh not found"
+    exit 1
+fi
+
 echo "✅ All test scripts found"
 echo
 
@@ -102,6 +117,57 @@ else
 fi
 echo
 
+# Wait between tests
+echo "⏳ Waiting 3 seconds before next test..."
+sleep 3
+echo
+
+# Test 6: Order State Confirmations (test 5 restarts orders-service and is run on its own)
+echo "🔵 Starting Test 6: Order State Confirmations"
+echo "================================================"
+if "$SCRIPT_DIR/test-6-order-state-confirmations.sh"; then
+    echo "✅ Test 6 Passed: Order State Confirmations"
+    TEST6_RESULT="PASSED"
+else
+    echo "❌ Test 6 Failed: Order State Confirmations"
+    TEST6_RESULT="FAILED"
+fi
+echo
+
+# Wait between tests
+echo "⏳ Waiting 3 seconds before next test..."
+sleep 3
+echo
+
+# Test 7: Queue Deduplication
+echo "🔵 Starting Test 7: Queue Deduplication"
+echo "================================================"
+if "$SCRIPT_DIR/test-7-queue-deduplication.sh"; then
+    echo "✅ Test 7 Passed: Queue Deduplication"
+    TEST7_RESULT="PASSED"
+else
+    echo "❌ Test 7 Failed: Queue Deduplication"
+    TEST7_RESULT="FAILED"
+fi
+echo
+
+# Wait between tests
+echo "⏳ Waiting 3 seconds before next test..."
+sleep 3
+echo
+
+# Test 8: Catalog Search Ranking
+echo "🔵 Starting Test 8: Catalog Search Ranking"
+echo "================================================"
+if "$SCRIPT_DIR/test-8-catalog-search.sh"; then
+    echo "✅ Test 8 Passed: Catalog Search Ranking"
+    TEST8_RESULT="PASSED"
+else
+    echo "❌ Test 8 Failed: Catalog Search Ranking"
+    TEST8_RESULT="FAILED"
+fi
+echo
+
 # Final Results Summary
 echo "================================================"
 echo "📊 FINAL TEST RESULTS SUMMARY"
@@ -113,10 +179,13 @@ echo "   1. User Creation & Auth:    $TEST1_RESULT"
 echo "   2. REST Order Processing:   $TEST2_RESULT"
 echo "   3. SOAP Order Processing:   $TEST3_RESULT"
 echo "   4. Catalog WS-Security:     $TEST4_RESULT"
+echo "   6. Order State Confirms:    $TEST6_RESULT"
+echo "   7. Queue Deduplication:     $TEST7_RESULT"
+echo "   8. Catalog Search Ranking:  $TEST8_RESULT"
 echo
 
 # Overall result
-if [ "$TEST1_RESULT" = "PASSED" ] && [ "$TEST2_RESULT" = "PASSED" ] && [ "$TEST3_RESULT" = "PASSED" ] && [ "$TEST4_RESULT" = "PASSED" ]; then
+if [ "$TEST1_RESULT" = "PASSED" ] && [ "$TEST2_RESULT" = "PASSED" ] && [ "$TEST3_RESULT" = "PASSED" ] && [ "$TEST4_RESULT" = "PASSED" ] && [ "$TEST6_RESULT" = "PASSED" ] && [ "$TEST7_RESULT" = "PASSED" ] && [ "$TEST8_RESULT" = "PASSED" ]; then
     echo "🎉 ALL TESTS PASSED - SOA SYSTEM FULLY FUNCTIONAL!"
     echo
     echo "✅ System Capabilities Validated:"
@@ -129,6 +198,9 @@ if [ "$TEST1_RESULT" = "PASSED" ] && [ "$TEST2_RESULT" = "PASSED" ] && [ "$TEST3
     echo "   • Dual authentication model (JWT for REST, WS-Security for SOAP)"
     echo "   • Microservices orchestration"
     echo "   • Queue-based asynchronous processing"
+    echo "   • Forward-only order states under repeated and overtaken confirmations"
+    echo "   • Exactly-once payments and shipments under redelivery"
+    echo "   • Relevance-ranked catalog search over REST and SOAP"
     echo
     echo "🏆 GlobalBooks SOA implementation is complete and working!"
     exit 0
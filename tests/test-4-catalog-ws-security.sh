@@ -243,10 +243,104 @@ else
     echo "   SOAP: $SOAP_TITLE by $SOAP_AUTHOR"
 fi
 
+# Sends getBookDetails with a PasswordDigest UsernameToken; prints the HTTP status
+# Password_Digest = Base64(SHA-1(nonce bytes + Created + password))
+send_digest_request() {
+    local nonce_b64=$1 created=$2 digest=$3
+    local request='<?xml version="1.0" encoding="UTF-8"?>
+<soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"
+               xmlns:wsse="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd"
+               xmlns:wsu="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd">
+    <soap:Header>
+        <wsse:Security>
+            <wsse:UsernameToken>
+                <wsse:Username>'$SOAP_USERNAME'</wsse:Username>
+                <wsse:Password Type="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-username-token-profile-1.0#PasswordDigest">'$digest'</wsse:Password>
+                <wsse:Nonce EncodingType="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-soap-message-security-1.0#Base64Binary">'$nonce_b64'</wsse:Nonce>
+                <wsu:Created>'$created'</wsu:Created>
+            </wsse:UsernameToken>
+        </wsse:Security>
+    </soap:Header>
+    <soap:Body>
+        <getBookDetailsRequest xmlns="http://globalbooks.com/catalog">
+            <id>'$BOOK_ID'</id>
+        </getBookDetailsRequest>
+    </soap:Body>
+</soap:Envelope>'
+    curl -s -o /dev/null -w "%{http_code}" \
+        -H "Content-Type: text/xml; charset=utf-8" \
+        -H "SOAPAction:" \
+        -d "$request" \
+        "$CATALOG_SERVICE/ws/catalog"
+}
+
+password_digest() {
+    local nonce_file=$1 created=$2 password=$3
+    { cat "$nonce_file"; printf '%s%s' "$created" "$password"; } | openssl dgst -sha1 -binary | base64
+}
+
+DIGEST_FAILURES=0
+NONCE_FILE=$(mktemp)
+openssl rand 16 > "$NONCE_FILE"
+NONCE_B64=$(base64 < "$NONCE_FILE")
+CREATED=$(date -u +%Y-%m-%dT%H:%M:%SZ)
+DIGEST=$(password_digest "$NONCE_FILE" "$CREATED" "$SOAP_PASSWORD")
+
+echo
+echo "🔑 Step 8: Testing SOAP with a PasswordDigest token (should SUCCEED)..."
+echo "   Nonce: $NONCE_B64"
+echo "   Created: $CREATED"
+echo "   Digest: $DIGEST"
+DIGEST_STATUS=$(send_digest_request "$NONCE_B64" "$CREATED" "$DIGEST")
+if [ "$DIGEST_STATUS" = "200" ]; then
+    echo "✅ PasswordDigest token accepted"
+else
+    echo "❌ PasswordDigest token rejected (HTTP $DIGEST_STATUS)"
+    DIGEST_FAILURES=$((DIGEST_FAILURES + 1))
+fi
+
+echo
+echo "🔁 Step 9: Replaying the same token (should FAIL)..."
+REPLAY_STATUS=$(send_digest_request "$NONCE_B64" "$CREATED" "$DIGEST")
+if [ "$REPLAY_STATUS" != "200" ]; then
+    echo "✅ Replayed nonce rejected (HTTP $REPLAY_STATUS)"
+else
+    echo "❌ Replayed nonce was accepted"
+    DIGEST_FAILURES=$((DIGEST_FAILURES + 1))
+fi
+
+echo
+echo "🚫 Step 10: Testing a digest of the wrong password (should FAIL)..."
+openssl rand 16 > "$NONCE_FILE"
+WRONG_NONCE_B64=$(base64 < "$NONCE_FILE")
+WRONG_DIGEST=$(password_digest "$NONCE_FILE" "$CREATED" "not-the-password")
+WRONG_STATUS=$(send_digest_request "$WRONG_NONCE_B64" "$CREATED" "$WRONG_DIGEST")
+if [ "$WRONG_STATUS" != "200" ]; then
+    echo "✅ Wrong digest rejected (HTTP $WRONG_STATUS)"
+else
+    echo "❌ Wrong digest was accepted"
+    DIGEST_FAILURES=$((DIGEST_FAILURES + 1))
+fi
+
+echo
+echo "⌛ Step 11: Testing a token created 10 minutes ago (should FAIL)..."
+openssl rand 16 > "$NONCE_FILE"
+STALE_NONCE_B64=$(base64 < "$NONCE_FILE")
+STALE_CREATED=$(date -u -d '-10 minutes' +%Y-%m-%dT%H:%M:%SZ)
+STALE_DIGEST=$(password_digest "$NONCE_FILE" "$STALE_CREATED" "$SOAP_PASSWORD")
+STALE_STATUS=$(send_digest_request "$STALE_NONCE_B64" "$STALE_CREATED" "$STALE_DIGEST")
+if [ "$STALE_STATUS" != "200" ]; then
+    echo "✅ Stale token rejected (HTTP $STALE_STATUS, older than ws.security.token-ttl-seconds)"
+else
+    echo "❌ Stale token was accepted"
+    DIGEST_FAILURES=$((DIGEST_FAILURES + 1))
+fi
+rm -f "$NONCE_FILE"
+
 echo
 echo "📊 Security Implementation Summary:"
 echo "   REST (/api/*): NO AUTHENTICATION (clean state - JWT removed)"
-echo "   SOAP (/ws/catalog): WS-SECURITY REQUIRED (Username Token)"
+echo "   SOAP (/ws/catalog): WS-SECURITY REQUIRED (Username Token, PasswordText or PasswordDigest)"
 echo "   WSDL: ACCESSIBLE (no authentication required)"
 echo "   Integration: Order Orchestration continues using REST"
 echo "----------------------------------------"
@@ -264,6 +358,11 @@ echo "   ✅ SOAP With WS-Security: PASSED"
 echo "   ✅ Order Orchestration: UNAFFECTED"
 echo "   ✅ WSDL Accessibility: PASSED"
 echo "   ✅ Data Consistency: PASSED"
+if [ "$DIGEST_FAILURES" -eq 0 ]; then
+    echo "   ✅ PasswordDigest, Nonce Replay and Token Age: PASSED"
+else
+    echo "   ❌ PasswordDigest, Nonce Replay and Token Age: $DIGEST_FAILURES check(s) FAILED"
+fi
 echo
 echo "🎉 WS-Security implementation successful!"
 echo "💡 Dual endpoint security model working perfectly"
@@ -278,6 +377,10 @@ echo
 echo "🔐 WS-Security Credentials:"
 echo "   Username: $SOAP_USERNAME"
 echo "   Password: $SOAP_PASSWORD"
-echo "   Type: PasswordText"
+echo "   Type: PasswordText or PasswordDigest (with Nonce and Created)"
 echo
 echo "✨ Catalog Service WS-Security testing complete!"
+
+if [ "$DIGEST_FAILURES" -ne 0 ]; then
+    exit 1
+fi
@@ -0,0 +1,158 @@
+#!/bin/bash
+
+# Test 5: Order Journal Torn-Tail Recovery
+# Crashes orders-service, leaves a half-written record at the end of its log segment and
+# checks that the restart truncates it and keeps every acknowledged order.
+# This script restarts orders-service, so it is not part of run-all-tests.sh.
+
+echo "================================================"
+echo "Test 5: GlobalBooks SOA - Order Journal Recovery"
+echo "================================================"
+echo
+
+# Configuration
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+PROJECT_ROOT="$(cd "$SCRIPT_DIR/.." && pwd)"
+ORDERS_SERVICE_URL="http://localhost:8082"
+# orders.storage.dir, relative to the orders-service module when started with spring-boot:run
+JOURNAL_DIR="${JOURNAL_DIR:-$PROJECT_ROOT/orders-service/data/orders}"
+ORDER_COUNT=3
+
+echo "📋 Test Configuration:"
+echo "   Orders Service: $ORDERS_SERVICE_URL"
+echo "   Journal Directory: $JOURNAL_DIR"
+echo
+
+echo "🎯 Test Objective: Validate that a torn record at the log tail is truncated on restart"
+echo "   and that no acknowledged order is lost"
+echo
+
+wait_for_orders_service() {
+    for i in $(seq 1 90); do
+        if curl -s -f --connect-timeout 2 "$ORDERS_SERVICE_URL/health" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 2
+    done
+    return 1
+}
+
+echo "🔍 Step 1: Checking Orders Service and journal..."
+if ! curl -s -f --connect-timeout 3 "$ORDERS_SERVICE_URL/health" > /dev/null 2>&1; then
+    echo "❌ Error: Orders Service is not running on $ORDERS_SERVICE_URL"
+    echo "   Command: mvn spring-boot:run -pl orders-service"
+    exit 1
+fi
+if [ ! -d "$JOURNAL_DIR" ]; then
+    echo "❌ Error: Journal directory $JOURNAL_DIR not found"
+    echo "   Set JOURNAL_DIR, or check that orders.storage.durable=true"
+    exit 1
+fi
+echo "✅ Orders Service is running with a journal in $JOURNAL_DIR"
+echo
+
+echo "📝 Step 2: Creating $ORDER_COUNT orders..."
+ORDER_IDS=()
+for i in $(seq 1 $ORDER_COUNT); do
+    ORDER_RESPONSE=$(curl -s -X POST -H "Content-Type: application/json" \
+        -d "{\"customerId\": \"journal-test-$i\", \"bookDetails\": {\"1\": {\"title\": \"Journal Test\", \"quantity\": $i}}}" \
+        "$ORDERS_SERVICE_URL/orders")
+    ORDER_ID=$(echo "$ORDER_RESPONSE" | jq -r '.id' 2>/dev/null)
+    if [ -z "$ORDER_ID" ] || [ "$ORDER_ID" = "null" ]; then
+        echo "❌ Order creation failed: $ORDER_RESPONSE"
+        exit 1
+    fi
+    ORDER_IDS+=("$ORDER_ID")
+    echo "   Created order $ORDER_ID for journal-test-$i"
+done
+echo "✅ Orders acknowledged (each save is journaled before the response)"
+echo
+
+echo "💥 Step 3: Crashing Orders Service..."
+PID=$(lsof -t -i:8082 -sTCP:LISTEN)
+if [ -z "$PID" ]; then
+    echo "❌ Could not find the Orders Service process"
+    exit 1
+fi
+kill -9 $PID
+sleep 3
+echo "✅ Orders Service killed (pid $PID)"
+echo
+
+echo "✂️  Step 4: Appending a torn record to the newest log segment..."
+SEGMENT=$(ls "$JOURNAL_DIR"/orders-*.log 2>/dev/null | sort | tail -n 1)
+if [ -z "$SEGMENT" ]; then
+    echo "❌ No log segment found in $JOURNAL_DIR"
+    exit 1
+fi
+SIZE_BEFORE=$(stat -c %s "$SEGMENT")
+# Header announcing a 64-byte record (length, CRC) followed by only part of its body
+printf '\x00\x00\x00\x40\x12\x34\x56\x78{"id":999999,"custo' >> "$SEGMENT"
+SIZE_TORN=$(stat -c %s "$SEGMENT")
+echo "   Segment: $(basename "$SEGMENT")"
+echo "   Size before: $SIZE_BEFORE bytes, with torn record: $SIZE_TORN bytes"
+echo
+
+echo "🔄 Step 5: Restarting Orders Service..."
+mkdir -p "$PROJECT_ROOT/logs"
+(cd "$PROJECT_ROOT" && mvn spring-boot:run -pl orders-service > "$PROJECT_ROOT/logs/orders-service.log" 2>&1 &)
+if ! wait_for_orders_service; then
+    echo "❌ Orders Service did not come back; see logs/orders-service.log"
+    exit 1
+fi
+echo "✅ Orders Service recovered and is accepting requests"
+echo
+
+echo "🔍 Step 6: Verifying recovery..."
+RECOVERY_PASSED=true
+
+SIZE_AFTER=$(stat -c %s "$SEGMENT")
+if [ "$SIZE_AFTER" = "$SIZE_BEFORE" ]; then
+    echo "✅ Torn tail truncated: segment is back to $SIZE_AFTER bytes"
+else
+    echo "❌ Segment is $SIZE_AFTER bytes, expected $SIZE_BEFORE"
+    RECOVERY_PASSED=false
+fi
+
+if grep -q "Truncating torn tail" "$PROJECT_ROOT/logs/orders-service.log"; then
+    echo "✅ Recovery logged the truncation"
+else
+    echo "⚠️  No truncation message in logs/orders-service.log"
+fi
+
+for ORDER_ID in "${ORDER_IDS[@]}"; do
+    STATUS=$(curl -s -o /dev/null -w "%{http_code}" "$ORDERS_SERVICE_URL/orders/$ORDER_ID")
+    if [ "$STATUS" = "200" ]; then
+        echo "✅ Order $ORDER_ID survived the crash"
+    else
+        echo "❌ Order $ORDER_ID is missing after recovery (HTTP $STATUS)"
+        RECOVERY_PASSED=false
+    fi
+done
+
+LAST_ID=${ORDER_IDS[$((ORDER_COUNT - 1))]}
+NEW_ID=$(curl -s -X POST -H "Content-Type: application/json" \
+    -d '{"customerId": "journal-test-after", "bookDetails": {}}' \
+    "$ORDERS_SERVICE_URL/orders" | jq -r '.id' 2>/dev/null)
+if [ -n "$NEW_ID" ] && [ "$NEW_ID" != "null" ] && [ "$NEW_ID" -gt "$LAST_ID" ]; then
+    echo "✅ New order $NEW_ID continues after the recovered ids"
+else
+    echo "❌ New order got id '$NEW_ID', expected one greater than $LAST_ID"
+    RECOVERY_PASSED=false
+fi
+echo
+
+echo "================================================"
+echo "📊 JOURNAL RECOVERY TEST RESULTS"
+echo "================================================"
+if [ "$RECOVERY_PASSED" = true ]; then
+    echo "✅ Torn-tail recovery: PASSED"
+    echo "   • Partial record at the tail discarded"
+    echo "   • All $ORDER_COUNT acknowledged orders replayed"
+    echo "   • Id sequence resumes after the last order"
+    exit 0
+else
+    echo "❌ Torn-tail recovery: FAILED"
+    echo "💡 Check logs/orders-service.log for the replay messages"
+    exit 1
+fi
@@ -0,0 +1,158 @@
+#!/bin/bash
+
+# Test 6: Order State Machine Confirmations
+# Publishes payment and shipping confirmations straight to RabbitMQ, out of order and
+# repeated, and checks that each order only moves forward, one version per real transition.
+
+echo "================================================"
+echo "Test 6: GlobalBooks SOA - Order State Confirmations"
+echo "================================================"
+echo
+
+# Configuration
+ORDERS_SERVICE_URL="http://localhost:8082"
+RABBITMQ_API="${RABBITMQ_API:-http://localhost:15672/api}"
+RABBITMQ_USER="${RABBITMQ_USER:-guest}"
+RABBITMQ_PASSWORD="${RABBITMQ_PASSWORD:-guest}"
+
+echo "📋 Test Configuration:"
+echo "   Orders Service: $ORDERS_SERVICE_URL"
+echo "   RabbitMQ Management API: $RABBITMQ_API"
+echo
+
+echo "🎯 Test Objective: Validate that overtaken and duplicate confirmations never move an"
+echo "   order backwards or bump its version twice"
+echo
+
+# Publishes a JSON payload to a queue through the default exchange
+publish() {
+    local routing_key=$1
+    local payload=$2
+    local body
+    body=$(jq -n --arg rk "$routing_key" --arg p "$payload" \
+        '{properties: {content_type: "application/json"}, routing_key: $rk, payload: $p, payload_encoding: "string"}')
+    curl -s -u "$RABBITMQ_USER:$RABBITMQ_PASSWORD" -H "Content-Type: application/json" \
+        -X POST -d "$body" "$RABBITMQ_API/exchanges/%2F/amq.default/publish" | jq -r '.routed'
+}
+
+create_order() {
+    curl -s -X POST -H "Content-Type: application/json" \
+        -d "{\"customerId\": \"$1\", \"bookDetails\": {\"1\": {\"title\": \"State Test\", \"quantity\": 1}}}" \
+        "$ORDERS_SERVICE_URL/orders" | jq -r '.id'
+}
+
+order_field() {
+    curl -s "$ORDERS_SERVICE_URL/orders/$1" | jq -r ".$2"
+}
+
+# Waits up to 15 seconds for the order to reach the state
+wait_for_state() {
+    for i in $(seq 1 30); do
+        if [ "$(order_field "$1" state)" = "$2" ]; then
+            return 0
+        fi
+        sleep 0.5
+    done
+    return 1
+}
+
+# Compares an order's state and version with the expected ones
+check_order() {
+    local order_id=$1 expected_state=$2 expected_version=$3 label=$4
+    local state version
+    state=$(order_field "$order_id" state)
+    version=$(order_field "$order_id" version)
+    if [ "$state" = "$expected_state" ] && [ "$version" = "$expected_version" ]; then
+        echo "✅ $label: order $order_id is $state at version $version"
+    else
+        echo "❌ $label: order $order_id is $state at version $version, expected $expected_state at version $expected_version"
+        CONFIRMATIONS_PASSED=false
+    fi
+}
+
+CONFIRMATIONS_PASSED=true
+
+echo "🔍 Step 1: Checking Orders Service and RabbitMQ..."
+if ! curl -s -f --connect-timeout 3 "$ORDERS_SERVICE_URL/health" > /dev/null 2>&1; then
+    echo "❌ Error: Orders Service is not running on $ORDERS_SERVICE_URL"
+    exit 1
+fi
+if ! curl -s -f -u "$RABBITMQ_USER:$RABBITMQ_PASSWORD" "$RABBITMQ_API/overview" > /dev/null 2>&1; then
+    echo "❌ Error: RabbitMQ management API is not reachable at $RABBITMQ_API"
+    echo "   Command: docker-compose up -d rabbitmq"
+    exit 1
+fi
+echo "✅ Orders Service and RabbitMQ are running"
+echo
+
+echo "📝 Step 2: Creating two orders..."
+ORDER_A=$(create_order "state-test-a")
+ORDER_B=$(create_order "state-test-b")
+if [ -z "$ORDER_A" ] || [ "$ORDER_A" = "null" ] || [ -z "$ORDER_B" ] || [ "$ORDER_B" = "null" ]; then
+    echo "❌ Order creation failed"
+    exit 1
+fi
+check_order "$ORDER_A" CREATED 0 "New order"
+check_order "$ORDER_B" CREATED 0 "New order"
+echo
+
+echo "🔀 Step 3: Shipping confirmation overtakes the payment confirmation..."
+echo "   Publishing: shippingconfirm.queue {orderId: $ORDER_A, status: SHIPPED}"
+publish shippingconfirm.queue "{\"orderId\": $ORDER_A, \"status\": \"SHIPPED\", \"shipmentId\": 1}" > /dev/null
+if wait_for_state "$ORDER_A" SHIPPED; then
+    check_order "$ORDER_A" SHIPPED 1 "Out-of-order shipping"
+else
+    echo "❌ Order $ORDER_A never reached SHIPPED"
+    CONFIRMATIONS_PASSED=false
+fi
+echo
+
+echo "⏪ Step 4: Late payment confirmation for the shipped order..."
+echo "   Publishing: paymentconfirm.queue {orderId: $ORDER_A, status: COMPLETED}"
+publish paymentconfirm.queue "{\"orderId\": $ORDER_A, \"status\": \"COMPLETED\", \"paymentId\": 1}" > /dev/null
+sleep 3
+check_order "$ORDER_A" SHIPPED 1 "Late payment ignored"
+echo
+
+echo "🔁 Step 5: Duplicate payment confirmations..."
+echo "   Publishing: paymentconfirm.queue {orderId: $ORDER_B, status: COMPLETED} x3"
+for i in 1 2 3; do
+    publish paymentconfirm.queue "{\"orderId\": $ORDER_B, \"status\": \"COMPLETED\", \"paymentId\": 2}" > /dev/null
+done
+if wait_for_state "$ORDER_B" PAID; then
+    sleep 2
+    check_order "$ORDER_B" PAID 1 "Duplicate payments"
+else
+    echo "❌ Order $ORDER_B never reached PAID"
+    CONFIRMATIONS_PASSED=false
+fi
+echo
+
+echo "🔁 Step 6: Duplicate shipping confirmations..."
+echo "   Publishing: shippingconfirm.queue {orderId: $ORDER_B, status: SHIPPED} x2"
+for i in 1 2; do
+    publish shippingconfirm.queue "{\"orderId\": $ORDER_B, \"status\": \"SHIPPED\", \"shipmentId\": 2}" > /dev/null
+done
+if wait_for_state "$ORDER_B" SHIPPED; then
+    sleep 2
+    check_order "$ORDER_B" SHIPPED 2 "Duplicate shipments"
+else
+    echo "❌ Order $ORDER_B never reached SHIPPED"
+    CONFIRMATIONS_PASSED=false
+fi
+echo
+
+echo "================================================"
+echo "📊 ORDER STATE CONFIRMATION TEST RESULTS"
+echo "================================================"
+if [ "$CONFIRMATIONS_PASSED" = true ]; then
+    echo "✅ Order state confirmations: PASSED"
+    echo "   • Shipping before payment takes CREATED straight to SHIPPED"
+    echo "   • Overtaken confirmations are ignored"
+    echo "   • Repeated confirmations change the version only once"
+    exit 0
+else
+    echo "❌ Order state confirmations: FAILED"
+    echo "💡 Check the orders-service log for the confirmation handling"
+    exit 1
+fi
@@ -0,0 +1,165 @@
+#!/bin/bash
+
+# Test 7: Payment and Shipping Deduplication
+# Publishes the same payment and shipping requests several times, as a broker redelivery or a
+# publisher re-send would, and checks that each order is charged and shipped exactly once.
+
+echo "================================================"
+echo "Test 7: GlobalBooks SOA - Queue Deduplication"
+echo "================================================"
+echo
+
+# Configuration
+PAYMENTS_SERVICE_URL="http://localhost:8083"
+SHIPPING_SERVICE_URL="http://localhost:8084"
+RABBITMQ_API="${RABBITMQ_API:-http://localhost:15672/api}"
+RABBITMQ_USER="${RABBITMQ_USER:-guest}"
+RABBITMQ_PASSWORD="${RABBITMQ_PASSWORD:-guest}"
+# An order id no other test uses
+ORDER_ID=$(( $(date +%s) * 10 + 7 ))
+
+echo "📋 Test Configuration:"
+echo "   Payments Service: $PAYMENTS_SERVICE_URL"
+echo "   Shipping Service: $SHIPPING_SERVICE_URL"
+echo "   RabbitMQ Management API: $RABBITMQ_API"
+echo "   Test Order ID: $ORDER_ID"
+echo
+
+echo "🎯 Test Objective: Validate that redelivered and re-sent requests never create a second"
+echo "   payment or shipment for an order"
+echo
+
+# Publishes a JSON payload with a message id to a queue through the default exchange
+publish() {
+    local routing_key=$1
+    local payload=$2
+    local message_id=$3
+    local body
+    body=$(jq -n --arg rk "$routing_key" --arg p "$payload" --arg id "$message_id" \
+        '{properties: {content_type: "application/json", message_id: $id}, routing_key: $rk, payload: $p, payload_encoding: "string"}')
+    curl -s -u "$RABBITMQ_USER:$RABBITMQ_PASSWORD" -H "Content-Type: application/json" \
+        -X POST -d "$body" "$RABBITMQ_API/exchanges/%2F/amq.default/publish" | jq -r '.routed'
+}
+
+count_records() {
+    curl -s "$1?orderId=$ORDER_ID" | jq 'length'
+}
+
+# Waits up to 30 seconds for a record of the order with one of the statuses
+wait_for_status() {
+    local url=$1 statuses=$2
+    for i in $(seq 1 60); do
+        STATUS=$(curl -s "$url?orderId=$ORDER_ID" | jq -r '.[0].status // empty')
+        if [ -n "$STATUS" ] && echo "$statuses" | grep -qw "$STATUS"; then
+            return 0
+        fi
+        sleep 0.5
+    done
+    return 1
+}
+
+check_count() {
+    local url=$1 label=$2
+    local count
+    count=$(count_records "$url")
+    if [ "$count" = "1" ]; then
+        echo "✅ $label: exactly one record for order $ORDER_ID"
+    else
+        echo "❌ $label: $count records for order $ORDER_ID, expected 1"
+        DEDUP_PASSED=false
+    fi
+}
+
+DEDUP_PASSED=true
+ADDRESS='{"street": "1 Test Street", "city": "Colombo", "state": "WP", "zipCode": "00100"}'
+PAYMENT_REQUEST="{\"orderId\": $ORDER_ID, \"customerId\": \"dedup-test\", \"amount\": 29.99, \"paymentMethod\": \"CREDIT_CARD\", \"bookDetails\": {}, \"shippingAddress\": $ADDRESS}"
+SHIPPING_REQUEST="{\"orderId\": $ORDER_ID, \"customerId\": \"dedup-test\", \"bookDetails\": {}, \"shippingAddress\": $ADDRESS}"
+
+echo "🔍 Step 1: Checking services and RabbitMQ..."
+for URL in "$PAYMENTS_SERVICE_URL" "$SHIPPING_SERVICE_URL"; do
+    if ! curl -s -f --connect-timeout 3 "$URL/health" > /dev/null 2>&1; then
+        echo "❌ Error: $URL is not running"
+        exit 1
+    fi
+done
+if ! curl -s -f -u "$RABBITMQ_USER:$RABBITMQ_PASSWORD" "$RABBITMQ_API/overview" > /dev/null 2>&1; then
+    echo "❌ Error: RabbitMQ management API is not reachable at $RABBITMQ_API"
+    echo "   Command: docker-compose up -d rabbitmq"
+    exit 1
+fi
+echo "✅ Payments, Shipping and RabbitMQ are running"
+echo
+
+echo "💳 Step 2: Redelivered payment request (same message id twice)..."
+echo "   Publishing: payment.queue {orderId: $ORDER_ID} as dedup-$ORDER_ID, twice"
+publish payment.queue "$PAYMENT_REQUEST" "dedup-$ORDER_ID" > /dev/null
+publish payment.queue "$PAYMENT_REQUEST" "dedup-$ORDER_ID" > /dev/null
+if wait_for_status "$PAYMENTS_SERVICE_URL/payments" "COMPLETED FAILED"; then
+    sleep 3
+    check_count "$PAYMENTS_SERVICE_URL/payments" "Redelivered payment"
+else
+    echo "❌ No completed payment for order $ORDER_ID"
+    DEDUP_PASSED=false
+fi
+PAYMENT_STATUS=$(curl -s "$PAYMENTS_SERVICE_URL/payments?orderId=$ORDER_ID" | jq -r '.[0].status')
+echo "   Payment status: $PAYMENT_STATUS"
+echo
+
+echo "💳 Step 3: Re-sent payment request (new message id, same order)..."
+publish payment.queue "$PAYMENT_REQUEST" "dedup-$ORDER_ID-resent" > /dev/null
+sleep 4
+check_count "$PAYMENTS_SERVICE_URL/payments" "Re-sent payment"
+echo
+
+if [ "$PAYMENT_STATUS" = "COMPLETED" ]; then
+    echo "📦 Step 4: Shipment created from the payment outcome..."
+    if wait_for_status "$SHIPPING_SERVICE_URL/shipments" "SHIPPED"; then
+        sleep 2
+        check_count "$SHIPPING_SERVICE_URL/shipments" "Shipment after duplicate payments"
+    else
+        echo "❌ Order $ORDER_ID was never shipped"
+        DEDUP_PASSED=false
+    fi
+    echo
+
+    echo "📦 Step 5: Redelivered and re-sent shipping requests..."
+    publish shipping.queue "$SHIPPING_REQUEST" "dedup-ship-$ORDER_ID" > /dev/null
+    publish shipping.queue "$SHIPPING_REQUEST" "dedup-ship-$ORDER_ID" > /dev/null
+    publish shipping.queue "$SHIPPING_REQUEST" "dedup-ship-$ORDER_ID-resent" > /dev/null
+    sleep 5
+    check_count "$SHIPPING_SERVICE_URL/shipments" "Duplicate shipping requests"
+else
+    echo "⚠️  Steps 4-5 skipped: payment was $PAYMENT_STATUS (is payments.gateway.failure-rate above 0?)"
+fi
+echo
+
+echo "💳 Step 6: Two payment requests for one order in the same batch (different message ids)..."
+# A second order, so no earlier payment exists when the batch arrives
+ORDER_ID=$((ORDER_ID + 1))
+PAYMENT_REQUEST="{\"orderId\": $ORDER_ID, \"customerId\": \"dedup-test\", \"amount\": 29.99, \"paymentMethod\": \"CREDIT_CARD\", \"bookDetails\": {}, \"shippingAddress\": $ADDRESS}"
+echo "   Publishing: payment.queue {orderId: $ORDER_ID} as dedup-$ORDER_ID-a and dedup-$ORDER_ID-b, back to back"
+publish payment.queue "$PAYMENT_REQUEST" "dedup-$ORDER_ID-a" > /dev/null
+publish payment.queue "$PAYMENT_REQUEST" "dedup-$ORDER_ID-b" > /dev/null
+if wait_for_status "$PAYMENTS_SERVICE_URL/payments" "COMPLETED FAILED"; then
+    sleep 3
+    check_count "$PAYMENTS_SERVICE_URL/payments" "Same-batch payment requests"
+else
+    echo "❌ No completed payment for order $ORDER_ID"
+    DEDUP_PASSED=false
+fi
+echo
+
+echo "================================================"
+echo "📊 QUEUE DEDUPLICATION TEST RESULTS"
+echo "================================================"
+if [ "$DEDUP_PASSED" = true ]; then
+    echo "✅ Queue deduplication: PASSED"
+    echo "   • A redelivered message id is dropped by the dedup window"
+    echo "   • A re-sent request under a new id finds the existing record"
+    echo "   • Each order is charged and shipped once, even for requests in one batch"
+    exit 0
+else
+    echo "❌ Queue deduplication: FAILED"
+    echo "💡 Check the payments-service and shipping-service logs"
+    exit 1
+fi
@@ -0,0 +1,137 @@
+#!/bin/bash
+
+# Test 8: Catalog Full-Text Search
+# Runs ranked searches over the built-in sample books through REST and SOAP and checks the
+# BM25 ordering, the top-k cut-off, term normalization and that both front ends agree.
+
+echo "================================================"
+echo "Test 8: GlobalBooks SOA - Catalog Search Ranking"
+echo "================================================"
+echo
+
+# Configuration
+CATALOG_SERVICE="http://localhost:8085"
+SOAP_USERNAME="catalog-client"
+SOAP_PASSWORD="catalog-secure-2024"
+
+echo "📋 Test Configuration:"
+echo "   Catalog Service: $CATALOG_SERVICE"
+echo "   REST Endpoint: /api/books/search?q=...&limit=..."
+echo "   SOAP Operation: searchBooks (WS-Security)"
+echo
+
+echo "🎯 Test Objective: Validate relevance ranking and top-k search results"
+echo
+
+SEARCH_PASSED=true
+
+# Prints the ids of a REST search, best match first, one per line
+search_ids() {
+    curl -s -G "$CATALOG_SERVICE/api/books/search" --data-urlencode "q=$1" --data-urlencode "limit=$2" | jq -r '.[].id'
+}
+
+expect_ids() {
+    local label=$1 expected=$2 actual=$3
+    if [ "$actual" = "$expected" ]; then
+        echo "✅ $label: [$(echo $actual)]"
+    else
+        echo "❌ $label: got [$(echo $actual)], expected [$(echo $expected)]"
+        SEARCH_PASSED=false
+    fi
+}
+
+echo "🔍 Step 1: Checking Catalog Service availability..."
+if ! curl -s -f --connect-timeout 3 "$CATALOG_SERVICE/api/books/1" > /dev/null 2>&1; then
+    echo "❌ Catalog Service is not accessible"
+    echo "💡 Make sure catalog-service is running on port 8085"
+    exit 1
+fi
+# The checks below rely on the four built-in sample books
+if [ -n "$(curl -s "$CATALOG_SERVICE/api/books/1" | jq -r '.title' | grep -v 'The Great Gatsby')" ]; then
+    echo "⚠️  The catalog was replaced by an import; ranking checks expect the sample books"
+fi
+echo "✅ Catalog Service is running"
+echo
+
+echo "📊 Step 2: Ranking by relevance..."
+echo "   Request: GET $CATALOG_SERVICE/api/books/search?q=great gatsby kill"
+RANKED=$(curl -s -G "$CATALOG_SERVICE/api/books/search" --data-urlencode "q=great gatsby kill" --data-urlencode "limit=10")
+echo "   Response: $RANKED"
+# The Great Gatsby matches two of the words, To Kill a Mockingbird one
+expect_ids "Best match first" "$(printf '1\n2')" "$(echo "$RANKED" | jq -r '.[].id')"
+if echo "$RANKED" | jq -e '[.[].score] as $s | $s == ($s | sort | reverse)' > /dev/null; then
+    echo "✅ Scores are in descending order"
+else
+    echo "❌ Scores are not in descending order"
+    SEARCH_PASSED=false
+fi
+echo
+
+echo "✂️  Step 3: Top-k cut-off..."
+FULL=$(search_ids "gatsby mockingbird orwell code" 10)
+TOP2=$(search_ids "gatsby mockingbird orwell code" 2)
+expect_ids "All four books match one word each" "4" "$(echo "$FULL" | wc -l | tr -d ' ')"
+# Skipping postings that cannot reach the top k must not change which books make it
+expect_ids "limit=2 returns the first two of the full ranking" "$(echo "$FULL" | head -n 2)" "$TOP2"
+echo
+
+echo "🔤 Step 4: Case and accent folding..."
+expect_ids "GATSBY" "1" "$(search_ids "GATSBY" 10)"
+expect_ids "Orwéll" "3" "$(search_ids "Orwéll" 10)"
+expect_ids "No match" "" "$(search_ids "zyxwvut" 10)"
+echo
+
+echo "🚫 Step 5: Blank query (should be rejected)..."
+BLANK_STATUS=$(curl -s -o /dev/null -w "%{http_code}" -G "$CATALOG_SERVICE/api/books/search" --data-urlencode "q= ")
+if [ "$BLANK_STATUS" = "400" ]; then
+    echo "✅ Blank query rejected with 400"
+else
+    echo "❌ Blank query returned $BLANK_STATUS, expected 400"
+    SEARCH_PASSED=false
+fi
+echo
+
+echo "🧼 Step 6: SOAP searchBooks returns the REST ranking..."
+SOAP_SEARCH_REQUEST='<?xml version="1.0" encoding="UTF-8"?>
+<soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"
+               xmlns:wsse="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd">
+    <soap:Header>
+        <wsse:Security>
+            <wsse:UsernameToken>
+                <wsse:Username>'$SOAP_USERNAME'</wsse:Username>
+                <wsse:Password Type="http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-username-token-profile-1.0#PasswordText">'$SOAP_PASSWORD'</wsse:Password>
+            </wsse:UsernameToken>
+        </wsse:Security>
+    </soap:Header>
+    <soap:Body>
+        <searchBooksRequest xmlns="http://globalbooks.com/catalog">
+            <query>great gatsby kill</query>
+            <limit>10</limit>
+        </searchBooksRequest>
+    </soap:Body>
+</soap:Envelope>'
+SOAP_SEARCH_RESPONSE=$(curl -s \
+    -H "Content-Type: text/xml; charset=utf-8" \
+    -H "SOAPAction:" \
+    -d "$SOAP_SEARCH_REQUEST" \
+    "$CATALOG_SERVICE/ws/catalog")
+# Book ids, whatever namespace prefix the response uses
+SOAP_IDS=$(echo "$SOAP_SEARCH_RESPONSE" | grep -o '<\([A-Za-z0-9]*:\)\{0,1\}id>[^<]*<' | sed 's/<[^>]*>//; s/<$//')
+expect_ids "SOAP ranking" "$(search_ids "great gatsby kill" 10)" "$SOAP_IDS"
+echo
+
+echo "================================================"
+echo "📊 CATALOG SEARCH TEST RESULTS"
+echo "================================================"
+if [ "$SEARCH_PASSED" = true ]; then
+    echo "✅ Catalog search: PASSED"
+    echo "   • Books matching more query words rank first"
+    echo "   • A smaller limit keeps the same leading results"
+    echo "   • Case and accents are ignored"
+    echo "   • REST and SOAP return the same ranking"
+    exit 0
+else
+    echo "❌ Catalog search: FAILED"
+    echo "💡 Check the catalog-service log; search results refresh every catalog.search.refresh-seconds"
+    exit 1
+fi